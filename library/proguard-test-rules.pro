@@ -0,0 +1,6 @@
+# Rules of the instrumented tests run with -PminifiedTests. Only the tests are kept, the library they exercise is
+# shrunk and obfuscated as in a minified app.
+-keep class com.rengwuxian.materialedittext.**Test { *; }
+-keep class com.rengwuxian.materialedittext.**Test$* { *; }
+-dontwarn org.junit.**
+-dontwarn androidx.test.**
@@ -0,0 +1,41 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class ColorPaletteTest {
+
+    private static final int BASE_COLOR = 0xff000000;
+    private static final int PRIMARY_COLOR = 0xff3f51b5;
+    private static final int ERROR_COLOR = 0xffe7492e;
+
+    @Test
+    public void testEqualColorsReturnTheSamePalette() {
+        ColorPalette palette = ColorPalette.obtain(BASE_COLOR, PRIMARY_COLOR, ERROR_COLOR, -1, -1, -1);
+        assertSame(palette, ColorPalette.obtain(BASE_COLOR, PRIMARY_COLOR, ERROR_COLOR, -1, -1, -1));
+        assertNotSame(palette, ColorPalette.obtain(BASE_COLOR, PRIMARY_COLOR, ERROR_COLOR, -1, -1, 0xff00ff00));
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testCachedPaletteDoesNotAllocate() {
+        ColorPalette.obtain(BASE_COLOR, PRIMARY_COLOR, ERROR_COLOR, -1, -1, -1);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < 100; i++) {
+            ColorPalette.obtain(BASE_COLOR, PRIMARY_COLOR, ERROR_COLOR, -1, -1, -1);
+        }
+        Debug.stopAllocCounting();
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+}
@@ -0,0 +1,50 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.animation.ArgbEvaluator;
+import android.graphics.Color;
+import android.os.Debug;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class ColorsTest {
+
+    private static final int START_COLOR = 0x44000000;
+    private static final int END_COLOR = 0xff3f51b5;
+
+    @Test
+    public void testLerpMatchesArgbEvaluator() {
+        ArgbEvaluator evaluator = new ArgbEvaluator();
+        for (int i = 0; i <= 10; i++) {
+            float fraction = i / 10f;
+            int expected = (Integer) evaluator.evaluate(fraction, START_COLOR, END_COLOR);
+            int actual = Colors.lerp(fraction, START_COLOR, END_COLOR);
+            assertTrue(Math.abs(Color.alpha(expected) - Color.alpha(actual)) <= 1);
+            assertTrue(Math.abs(Color.red(expected) - Color.red(actual)) <= 1);
+            assertTrue(Math.abs(Color.green(expected) - Color.green(actual)) <= 1);
+            assertTrue(Math.abs(Color.blue(expected) - Color.blue(actual)) <= 1);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testLerpDoesNotAllocate() {
+        // Warm up, so class loading isn't counted
+        Colors.lerp(0.5f, START_COLOR, END_COLOR);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        int color = 0;
+        for (int i = 0; i < 1000; i++) {
+            color ^= Colors.lerp(i / 1000f, START_COLOR, END_COLOR);
+        }
+        Debug.stopAllocCounting();
+        assertEquals("color " + color, 0, Debug.getThreadAllocCount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.widget.EditText;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class METDecorationControllerTest {
+
+    private EditText editText;
+    private METDecorationController controller;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText = new EditText(context);
+            controller = METDecorationController.attach(editText);
+        });
+    }
+
+    @Test
+    public void testDecorationsAreTheBackground() {
+        assertSame(controller.getDrawable(), editText.getBackground());
+    }
+
+    @Test
+    public void testErrorExtendsThePlainField() {
+        int[] paddingBottom = new int[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.layout(0, 0, 1000, 200);
+            paddingBottom[0] = editText.getPaddingBottom();
+            controller.beginBatchUpdate();
+            controller.setError("Error!");
+            controller.endBatchUpdate();
+            paddingBottom[1] = editText.getPaddingBottom();
+        });
+        assertEquals("Error!", controller.getError().toString());
+        assertTrue(paddingBottom[1] > paddingBottom[0]);
+    }
+
+    @Test
+    public void testDetachRestoresThePlainField() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            controller.detach();
+            editText.setText("Text");
+        });
+        assertNull(editText.getBackground());
+        assertNull(controller.getError());
+    }
+}
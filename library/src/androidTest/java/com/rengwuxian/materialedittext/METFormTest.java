@@ -0,0 +1,142 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.rengwuxian.materialedittext.validation.METCrossFieldValidator;
+import com.rengwuxian.materialedittext.validation.RegexpValidator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class METFormTest {
+
+    private MaterialEditText password;
+    private MaterialEditText confirmPassword;
+    private MaterialEditText startDate;
+    private MaterialEditText endDate;
+    private CountingValidator confirmRule;
+    private CountingValidator dateRule;
+    private METForm form;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        password = new MaterialEditText(context);
+        confirmPassword = new MaterialEditText(context);
+        startDate = new MaterialEditText(context);
+        endDate = new MaterialEditText(context);
+        confirmRule = new CountingValidator("Passwords do not match", password);
+        dateRule = new CountingValidator("End date must be after start date", startDate);
+        form = new METForm()
+                .addValidator(confirmPassword, confirmRule)
+                .addValidator(endDate, dateRule);
+    }
+
+    @Test
+    public void testChangingDependencyReEvaluatesDependentRule() {
+        setText(confirmPassword, "secret");
+        setText(password, "other");
+        assertEquals("Passwords do not match", confirmPassword.getError().toString());
+
+        setText(password, "secret");
+        assertNull(confirmPassword.getError());
+    }
+
+    @Test
+    public void testChangingFieldDoesNotTriggerUnrelatedValidators() {
+        confirmRule.invocations = 0;
+        dateRule.invocations = 0;
+
+        setText(password, "secret");
+        setText(confirmPassword, "secret");
+
+        assertEquals(2, confirmRule.invocations);
+        assertEquals(0, dateRule.invocations);
+    }
+
+    @Test
+    public void testRemoveFieldStopsReEvaluation() {
+        form.removeField(password);
+        confirmRule.invocations = 0;
+
+        setText(password, "secret");
+
+        assertEquals(0, confirmRule.invocations);
+    }
+
+    @Test
+    public void testValidateChecksAllFields() {
+        setText(password, "secret");
+        setText(confirmPassword, "typo");
+        setText(startDate, "b");
+        setText(endDate, "b");
+
+        assertFalse(form.validate());
+        setText(confirmPassword, "secret");
+        assertTrue(form.validate());
+    }
+
+    @Test
+    public void testPassingRuleKeepsTheFieldsOwnError() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            confirmPassword.addValidator(new RegexpValidator("At least 6 characters", ".{6,}"));
+            confirmPassword.setAutoValidate(true);
+        });
+        setText(password, "abc");
+        setText(confirmPassword, "abc");
+
+        assertEquals("At least 6 characters", confirmPassword.getError().toString());
+    }
+
+    @Test
+    public void testRemovingTheDependencyClearsItsRulesError() {
+        setText(password, "secret");
+        setText(confirmPassword, "typo");
+        assertEquals("Passwords do not match", confirmPassword.getError().toString());
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> form.removeField(password));
+        assertNull(confirmPassword.getError());
+        assertTrue(form.validate(confirmPassword));
+    }
+
+    @Test
+    public void testRemovingAFieldClearsTheErrorOfItsRules() {
+        setText(password, "secret");
+        setText(confirmPassword, "typo");
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> form.removeField(confirmPassword));
+        assertNull(confirmPassword.getError());
+    }
+
+    private static void setText(final TextView field, final CharSequence text) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> field.setText(text));
+    }
+
+    private static class CountingValidator extends METCrossFieldValidator {
+
+        int invocations;
+
+        CountingValidator(@NonNull String errorMessage, @NonNull TextView dependency) {
+            super(errorMessage, dependency);
+        }
+
+        @Override
+        public boolean isValid(CharSequence text, boolean isEmpty) {
+            invocations++;
+            return isEmpty || text.toString().equals(getDependencyText(0).toString());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class METStrictModeTest {
+
+    private MaterialEditText editText;
+    private final List<METStrictMode.Violation> violations = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        editText = new MaterialEditText(ApplicationProvider.getApplicationContext());
+        editText.setId(7);
+        METStrictMode.setOnViolationListener(violations::add);
+        METStrictMode.enable(1, METStrictMode.PENALTY_LISTENER);
+    }
+
+    @After
+    public void tearDown() {
+        METStrictMode.disable();
+        METStrictMode.setOnViolationListener(null);
+    }
+
+    @Test
+    public void testSlowValidatorIsReportedWithItsFieldAndClass() {
+        editText.addValidator(new SlowValidator());
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> editText.validate());
+        assertEquals(1, violations.size());
+        assertSame(SlowValidator.class, violations.get(0).getCallbackClass());
+        assertEquals(7, violations.get(0).getFieldId());
+        assertTrue(violations.get(0).getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testSlowLengthCheckerIsReported() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setMaxCharacters(10);
+            editText.setLengthChecker(new SlowLengthChecker());
+            editText.setText("Text");
+        });
+        assertTrue(violations.size() > 0);
+        assertSame(SlowLengthChecker.class, violations.get(0).getCallbackClass());
+    }
+
+    @Test
+    public void testCallsOffTheMainThreadAreNotTimed() {
+        assertTrue(Callbacks.isValid(editText, new SlowValidator(), "Text", false));
+        assertTrue(violations.isEmpty());
+    }
+
+    @Test
+    public void testDeathPenaltyLetsTheEditComplete() {
+        METStrictMode.enable(1, METStrictMode.PENALTY_DEATH);
+        editText.addValidator(new SlowValidator());
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setAutoValidate(true);
+            editText.setText("Text");
+            // Thrown once the edit completed, after this message
+            METStrictMode.cancelPendingDeaths();
+            assertEquals("Text", editText.getText().toString());
+        });
+    }
+
+    private static class SlowValidator extends METValidator {
+
+        SlowValidator() {
+            super("Slow");
+        }
+
+        @Override
+        public boolean isValid(CharSequence text, boolean isEmpty) {
+            SystemClock.sleep(5);
+            return true;
+        }
+    }
+
+    private static class SlowLengthChecker extends METLengthChecker {
+
+        @Override
+        public int getLength(CharSequence text) {
+            SystemClock.sleep(5);
+            return text.length();
+        }
+    }
+}
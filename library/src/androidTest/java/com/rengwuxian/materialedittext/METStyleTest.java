@@ -0,0 +1,43 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.view.ContextThemeWrapper;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class METStyleTest {
+
+    /**
+     * @return A context with the same theme as the others, under the given density and night mode.
+     */
+    static Context themedContext(int densityDpi, int nightMode) {
+        Context context = ApplicationProvider.getApplicationContext();
+        Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        configuration.densityDpi = densityDpi;
+        configuration.uiMode = (configuration.uiMode & ~Configuration.UI_MODE_NIGHT_MASK) | nightMode;
+        return new ContextThemeWrapper(context.createConfigurationContext(configuration), android.R.style.Theme_Material_Light);
+    }
+
+    @Test
+    public void testStyleIsResolvedPerConfiguration() {
+        Context day = themedContext(160, Configuration.UI_MODE_NIGHT_NO);
+        Context night = themedContext(320, Configuration.UI_MODE_NIGHT_YES);
+        METStyle dayStyle = METStyle.obtain(day, 0);
+        METStyle nightStyle = METStyle.obtain(night, 0);
+        assertNotSame(dayStyle, nightStyle);
+        assertEquals(32, dayStyle.iconSize);
+        assertEquals(64, nightStyle.iconSize);
+        assertSame(dayStyle, METStyle.obtain(day, 0));
+        assertSame(nightStyle, METStyle.obtain(night, 0));
+    }
+}
@@ -0,0 +1,84 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class METThemeTest {
+
+    private static final String TAG = "METThemeTest";
+
+    @Test
+    public void testThemeChangeRecolorsWithoutTouchingTheText() {
+        MaterialEditText editText = new MaterialEditText(ApplicationProvider.getApplicationContext());
+        METTheme theme = new METTheme(Color.BLACK, Color.BLUE);
+        int[] textChanges = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setText("Text");
+            editText.setMetTheme(theme);
+            editText.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    textChanges[0]++;
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                }
+            });
+            theme.beginBatchUpdate();
+            theme.setBaseColor(Color.WHITE);
+            theme.setErrorColor(Color.MAGENTA);
+            theme.endBatchUpdate();
+        });
+        assertSame(theme, editText.getMetTheme());
+        assertEquals(0x44ffffff, editText.getCurrentHintTextColor());
+        assertEquals(0, textChanges[0]);
+    }
+
+    /**
+     * Switches 200 fields between a light and a dark theme.
+     */
+    @Test
+    public void benchmarkThemeSwitch() {
+        Context context = ApplicationProvider.getApplicationContext();
+        METTheme theme = new METTheme(Color.BLACK, Color.BLUE);
+        MaterialEditText[] editTexts = new MaterialEditText[200];
+        long[] duration = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < editTexts.length; i++) {
+                editTexts[i] = new MaterialEditText(context);
+                editTexts[i].setIconLeft(R.drawable.met_ic_clear);
+                editTexts[i].setText("Value " + i);
+                editTexts[i].layout(0, 0, 1000, 200);
+                editTexts[i].setMetTheme(theme);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                theme.beginBatchUpdate();
+                theme.setBaseColor(i % 2 == 0 ? Color.WHITE : Color.BLACK);
+                theme.setPrimaryColor(i % 2 == 0 ? Color.CYAN : Color.BLUE);
+                theme.endBatchUpdate();
+            }
+            duration[0] = System.nanoTime() - start;
+        });
+        Log.i(TAG, "Switching " + editTexts.length + " fields: " + duration[0] / 10000 + "us per switch");
+    }
+}
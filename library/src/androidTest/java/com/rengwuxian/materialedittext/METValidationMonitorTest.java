@@ -0,0 +1,88 @@
+package com.rengwuxian.materialedittext;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.rengwuxian.materialedittext.validation.METValidator;
+import com.rengwuxian.materialedittext.validation.RegexpValidator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class METValidationMonitorTest {
+
+    private MaterialEditText editText;
+    private METValidator validator;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        editText = new MaterialEditText(context);
+        editText.setId(42);
+        validator = new RegexpValidator("Digits only", "\\d+");
+        editText.addValidator(validator);
+        METValidationMonitor.reset();
+        METValidationMonitor.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        METValidationMonitor.setEnabled(false);
+        METValidationMonitor.reset();
+    }
+
+    @Test
+    public void testCountsPassesAndFailuresPerValidatorAndField() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setText("12");
+            editText.validate();
+            editText.setText("ab");
+            editText.validate();
+            editText.validate();
+        });
+        List<METValidationMonitor.Stats> stats = METValidationMonitor.getStats();
+        assertEquals(1, stats.size());
+        assertSame(RegexpValidator.class, stats.get(0).getValidatorClass());
+        assertEquals(42, stats.get(0).getFieldId());
+        assertEquals(3, stats.get(0).getInvocations());
+        assertEquals(1, stats.get(0).getPasses());
+        assertEquals(2, stats.get(0).getFailures());
+    }
+
+    @Test
+    public void testPlacesDurationsInLatencyBuckets() {
+        View field = new View(ApplicationProvider.getApplicationContext());
+        for (long micros : new long[]{10, 49, 50, 999, 20000}) {
+            METValidationMonitor.record(field, validator, true, TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        METValidationMonitor.Stats stats = METValidationMonitor.getStats().get(0);
+        assertArrayEquals(new long[]{2, 1, 0, 0, 1, 0, 0, 0, 0, 1}, stats.getHistogram());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(20000), stats.getMaxNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(10 + 49 + 50 + 999 + 20000) / 5, stats.getAverageNanos());
+    }
+
+    @Test
+    public void testDisabledMonitorRecordsNothing() {
+        METValidationMonitor.setEnabled(false);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setText("12");
+            editText.validate();
+        });
+        assertTrue(METValidationMonitor.getStats().isEmpty());
+    }
+}
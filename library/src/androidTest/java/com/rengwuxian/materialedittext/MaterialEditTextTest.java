@@ -1,21 +1,46 @@
 package com.rengwuxian.materialedittext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Debug;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.EditText;
 
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
 
+import com.rengwuxian.materialedittext.validation.METValidator;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RunWith(AndroidJUnit4.class)
 public class MaterialEditTextTest {
 
+    private static final String TAG = "MaterialEditTextTest";
+
     private MaterialEditText editTextUnderTest;
 
     @Before
@@ -40,4 +65,540 @@ public class MaterialEditTextTest {
     public void testSetErrorWithZeroSizeDoesNotThrow() {
         InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> editTextUnderTest.setError("Error!"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testErrorTransitionLaysOutAtMostOncePerDirection() throws InterruptedException {
+        LayoutCountingEditText editText = new LayoutCountingEditText(ApplicationProvider.getApplicationContext());
+        editText.layout(0, 0, 1000, 1000);
+
+        editText.layoutRequests = 0;
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> editText.setError("Error!"));
+        waitForAnimations();
+        assertTrue("show: " + editText.layoutRequests, editText.layoutRequests <= 1);
+
+        editText.layoutRequests = 0;
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> editText.setError(null));
+        waitForAnimations();
+        assertTrue("hide: " + editText.layoutRequests, editText.layoutRequests <= 1);
+    }
+
+    @Test
+    public void testTransitionsOfManyFieldsShareTheDriver() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        MaterialEditText[] editTexts = new MaterialEditText[50];
+        for (int i = 0; i < editTexts.length; i++) {
+            editTexts[i] = new MaterialEditText(context);
+            editTexts[i].layout(0, 0, 1000, 1000);
+        }
+
+        int[] activeCount = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (MaterialEditText editText : editTexts) {
+                editText.setError("Error!");
+            }
+            activeCount[0] = METAnimationDriver.getActiveAnimationCount();
+        });
+        assertEquals(METAnimationDriver.areAnimationsEnabled(context) ? editTexts.length : 0, activeCount[0]);
+
+        waitForAnimations();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> activeCount[0] = METAnimationDriver.getActiveAnimationCount());
+        assertEquals(0, activeCount[0]);
+    }
+
+    @Test
+    public void testDisabledAnimationsSnapWithoutSchedulingFrames() {
+        MaterialEditText editText = new MaterialEditText(ApplicationProvider.getApplicationContext());
+        editText.layout(0, 0, 1000, 1000);
+
+        int[] activeCount = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            METAnimationDriver.setAnimationsEnabled(false);
+            try {
+                editText.setError("Error!");
+                activeCount[0] = METAnimationDriver.getActiveAnimationCount();
+            } finally {
+                METAnimationDriver.setAnimationsEnabled(true);
+            }
+        });
+        assertEquals(0, activeCount[0]);
+    }
+
+    /**
+     * Times starting the label transition of a first field, against the same on a field created after it. Also run with
+     * -PminifiedTests, where the transitions must still start and finish.
+     */
+    @Test
+    public void benchmarkFirstTransitionLatency() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        MaterialEditText[] editTexts = new MaterialEditText[2];
+        long[] durations = new long[2];
+        int[] activeCount = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < editTexts.length; i++) {
+                editTexts[i] = new MaterialEditText(context);
+                editTexts[i].setFloatingLabel(MaterialEditText.FLOATING_LABEL_NORMAL);
+                editTexts[i].layout(0, 0, 1000, 300);
+                long start = System.nanoTime();
+                editTexts[i].setText("Text");
+                durations[i] = System.nanoTime() - start;
+            }
+            activeCount[0] = METAnimationDriver.getActiveAnimationCount();
+        });
+        assertEquals(METAnimationDriver.areAnimationsEnabled(context) ? editTexts.length : 0, activeCount[0]);
+
+        waitForAnimations();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> activeCount[0] = METAnimationDriver.getActiveAnimationCount());
+        assertEquals(0, activeCount[0]);
+        Log.i(TAG, "Starting the label transition: first " + durations[0] / 1000 + "us, then " + durations[1] / 1000 + "us");
+    }
+
+    @Test
+    public void testBindDefersValidationToASingleRun() {
+        MaterialEditText editText = new MaterialEditText(ApplicationProvider.getApplicationContext());
+        editText.layout(0, 0, 1000, 1000);
+        int[] validations = new int[1];
+        editText.addValidator(new METValidator("Too short") {
+            @Override
+            public boolean isValid(CharSequence text, boolean isEmpty) {
+                validations[0]++;
+                return text.length() >= 3;
+            }
+        });
+        editText.setAutoValidate(true);
+
+        validations[0] = 0;
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.beginBatchUpdate();
+            editText.setText("a");
+            editText.append("b");
+            editText.setHelperText("Helper");
+            editText.endBatchUpdate();
+        });
+        assertEquals(1, validations[0]);
+        assertEquals("Too short", editText.getError().toString());
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> editText.bind("abc", null, "Taken"));
+        assertEquals("Taken", editText.getError().toString());
+    }
+
+    @Test
+    public void benchmarkRestoreDraft() {
+        Context context = ApplicationProvider.getApplicationContext();
+        MaterialEditText[] editTexts = new MaterialEditText[80];
+        for (int i = 0; i < editTexts.length; i++) {
+            editTexts[i] = new MaterialEditText(context);
+            editTexts[i].setFloatingLabel(MaterialEditText.FLOATING_LABEL_HIGHLIGHT);
+            editTexts[i].setMaxCharacters(20);
+            editTexts[i].layout(0, 0, 1000, 200);
+        }
+
+        long[] durations = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            long start = System.nanoTime();
+            for (MaterialEditText editText : editTexts) {
+                editText.setText("Draft");
+                editText.setHelperText("Helper");
+            }
+            durations[0] = System.nanoTime() - start;
+            for (MaterialEditText editText : editTexts) {
+                editText.setText(null);
+            }
+            start = System.nanoTime();
+            for (MaterialEditText editText : editTexts) {
+                editText.bind("Draft", "Helper", null);
+            }
+            durations[1] = System.nanoTime() - start;
+        });
+        Log.i(TAG, "Restoring " + editTexts.length + " fields: " + durations[0] / 1000 + "us, batched " + durations[1] / 1000 + "us");
+    }
+
+    @Test
+    public void testResetForReuseDiscardsThePreviousRow() {
+        MaterialEditText editText = new MaterialEditText(ApplicationProvider.getApplicationContext());
+        editText.layout(0, 0, 1000, 1000);
+        int[] activeCount = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.addValidator(new METValidator("Invalid") {
+                @Override
+                public boolean isValid(CharSequence text, boolean isEmpty) {
+                    return false;
+                }
+            });
+            editText.setText("Previous");
+            editText.validate();
+            editText.resetForReuse(new METFieldConfig().setText("Next").setHelperText("Helper"));
+            activeCount[0] = METAnimationDriver.getActiveAnimationCount();
+        });
+        assertNull(editText.getError());
+        assertTrue(editText.getValidators() == null || editText.getValidators().isEmpty());
+        assertEquals("Next", editText.getText().toString());
+        assertEquals(0, activeCount[0]);
+    }
+
+    /**
+     * Binds 1,000 rows to a pool of recycled fields, the way a {@code RecyclerView} adapter would while scrolling.
+     */
+    @Test
+    public void benchmarkRecycledRows() {
+        Context context = ApplicationProvider.getApplicationContext();
+        MaterialEditText[] pool = new MaterialEditText[12];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new MaterialEditText(context);
+            pool[i].setFloatingLabel(MaterialEditText.FLOATING_LABEL_HIGHLIGHT);
+            pool[i].layout(0, 0, 1000, 200);
+        }
+        METFieldConfig[] rows = new METFieldConfig[1000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new METFieldConfig().setHint("Row " + i).setText(i % 3 == 0 ? "" : "Value " + i).setMaxCharacters(20)
+                    .setHelperText(i % 2 == 0 ? "Helper" : null).setError(i % 7 == 0 ? "Error" : null);
+        }
+
+        long[] duration = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < rows.length; i++) {
+                pool[i % pool.length].resetForReuse(rows[i]);
+            }
+            duration[0] = System.nanoTime() - start;
+        });
+        Log.i(TAG, "Binding " + rows.length + " rows: " + duration[0] / 1000 + "us");
+    }
+
+    @Test
+    public void testAllFieldsShareTheSameLayout() {
+        Context context = ApplicationProvider.getApplicationContext();
+        MaterialEditText editText = new MaterialEditText(context);
+        MaterialAutoCompleteTextView autoComplete = new MaterialAutoCompleteTextView(context);
+        MaterialMultiAutoCompleteTextView multiAutoComplete = new MaterialMultiAutoCompleteTextView(context);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setMaxCharacters(10);
+            autoComplete.setMaxCharacters(10);
+            multiAutoComplete.setMaxCharacters(10);
+            editText.layout(0, 0, 300, 200);
+            autoComplete.layout(0, 0, 300, 200);
+            multiAutoComplete.layout(0, 0, 300, 200);
+            editText.bind("", "A helper text long enough to wrap in a narrow field", null);
+            autoComplete.bind("", "A helper text long enough to wrap in a narrow field", null);
+            multiAutoComplete.bind("", "A helper text long enough to wrap in a narrow field", null);
+        });
+        assertEquals(editText.getPaddingBottom(), autoComplete.getPaddingBottom());
+        assertEquals(editText.getPaddingBottom(), multiAutoComplete.getPaddingBottom());
+        assertEquals(editText.getPaddingRight(), autoComplete.getPaddingRight());
+    }
+
+    /**
+     * Draws 500 frames of a fully decorated field where, as with a blinking caret, only the text layer changes.
+     */
+    @Test
+    public void benchmarkCaretBlinkFrames() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Canvas canvas = new Canvas(Bitmap.createBitmap(1000, 300, Bitmap.Config.ARGB_8888));
+        long[] durations = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // Drawn as the widgets do, the engine's decorations under the field's own content
+            EditText editText = new EditText(context);
+            FieldEngine engine = new FieldEngine(editText, context, null);
+            engine.setFloatingLabel(MaterialEditText.FLOATING_LABEL_HIGHLIGHT);
+            engine.setFloatingLabelText("Label");
+            // Decoded up front, so the icon is drawn from the first frame
+            IconCache.obtain(context, R.drawable.met_ic_clear, METStyle.obtain(context, 0).iconSize);
+            engine.setIconLeft(R.drawable.met_ic_clear);
+            engine.setMaxCharacters(5);
+            engine.setHelperTextAlwaysShown(true);
+            engine.bind("Longer than the max", "Helper", null);
+            editText.measure(View.MeasureSpec.makeMeasureSpec(1000, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(300, View.MeasureSpec.EXACTLY));
+            editText.layout(0, 0, 1000, 300);
+            for (int pass = 0; pass < 2; pass++) {
+                engine.setDecorationCache(new DecorationCache(pass == 1));
+                engine.draw(canvas);
+                editText.draw(canvas);
+                long start = System.nanoTime();
+                for (int i = 0; i < 500; i++) {
+                    engine.draw(canvas);
+                    editText.draw(canvas);
+                }
+                durations[pass] = System.nanoTime() - start;
+            }
+        });
+        Log.i(TAG, "Drawing 500 frames: " + durations[0] / 1000 + "us, replaying the decorations " + durations[1] / 1000 + "us");
+    }
+
+    @Test
+    public void testHelperTextMakesRoomForACounterAddedLater() {
+        Context context = ApplicationProvider.getApplicationContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            EditText editText = new EditText(context);
+            FieldEngine engine = new FieldEngine(editText, context, null);
+            editText.layout(0, 0, 1000, 300);
+            engine.setHelperText("Helper");
+            int width = engine.getBottomTextLayout().getWidth();
+
+            engine.setMaxCharacters(10);
+            assertTrue(engine.getBottomTextLayout().getWidth() < width);
+        });
+    }
+
+    @Test
+    public void testTypingOnlyInvalidatesTheBottomRegion() {
+        // Later releases invalidate the whole View
+        assumeTrue(Build.VERSION.SDK_INT < Build.VERSION_CODES.P);
+        InvalidationRecordingEditText editText = new InvalidationRecordingEditText(ApplicationProvider.getApplicationContext());
+        Canvas canvas = new Canvas(Bitmap.createBitmap(1000, 300, Bitmap.Config.ARGB_8888));
+        int[] textBottom = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            editText.setMaxCharacters(20);
+            editText.layout(0, 0, 1000, 300);
+            editText.draw(canvas);
+            editText.dirtyRects.clear();
+            editText.append("a");
+            textBottom[0] = editText.getHeight() - editText.getPaddingBottom();
+        });
+        assertFalse(editText.dirtyRects.isEmpty());
+        for (Rect dirty : editText.dirtyRects) {
+            assertTrue(dirty.toString(), dirty.top >= textBottom[0]);
+        }
+    }
+
+    /**
+     * Creates 300 fields, resolving the attributes for each of them then sharing a preset.
+     */
+    @Test
+    public void benchmarkCreateWithPreset() {
+        Context context = ApplicationProvider.getApplicationContext();
+        long[] durations = new long[2];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            long start = System.nanoTime();
+            for (int i = 0; i < 300; i++) {
+                METStyle.clearCache();
+                new MaterialEditText(context);
+            }
+            durations[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 300; i++) {
+                new MaterialEditText(context, METStyle.obtain(context, 0));
+            }
+            durations[1] = System.nanoTime() - start;
+        });
+        assertSame(METStyle.obtain(context, 0), METStyle.obtain(context, 0));
+        Log.i(TAG, "Creating 300 fields: " + durations[0] / 1000 + "us, with a preset " + durations[1] / 1000 + "us");
+    }
+
+    @Test
+    public void testBuilderLaysOutLikeTheSetters() {
+        Context context = ApplicationProvider.getApplicationContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            MaterialEditText built = new MaterialEditText.Builder(context)
+                    .setFloatingLabel(MaterialEditText.FLOATING_LABEL_HIGHLIGHT)
+                    .setHelperText("helper")
+                    .setMaxCharacters(10)
+                    .setShowClearButton(true)
+                    .build();
+            MaterialEditText configured = new MaterialEditText(context);
+            configured.setFloatingLabel(MaterialEditText.FLOATING_LABEL_HIGHLIGHT);
+            configured.setHelperText("helper");
+            configured.setMaxCharacters(10);
+            configured.setShowClearButton(true);
+            assertEquals(configured.getPaddingTop(), built.getPaddingTop());
+            assertEquals(configured.getPaddingBottom(), built.getPaddingBottom());
+            assertEquals(configured.getPaddingLeft(), built.getPaddingLeft());
+            assertEquals(configured.getPaddingRight(), built.getPaddingRight());
+        });
+    }
+
+    /**
+     * The builder sets the text before the engine is created, as inflating does, and the field is recolored afterwards.
+     */
+    @Test
+    public void testInitialTextAndRecoloringDoNotNotifyTextWatchers() {
+        Context context = ApplicationProvider.getApplicationContext();
+        int[] textChanges = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            MaterialEditText editText = new MaterialEditText.Builder(context)
+                    .setText("Inflated")
+                    .build();
+            editText.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    textChanges[0]++;
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                    textChanges[0]++;
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    textChanges[0]++;
+                }
+            });
+            editText.setBaseColor(0xff336699);
+            editText.setPrimaryColor(0xff3f51b5);
+            editText.setMetTheme(new METTheme(0xff000000, 0xffe91e63));
+            editText.setMetTheme(null);
+            assertEquals("Inflated", editText.getText().toString());
+            assertEquals("Inflated".length(), editText.getSelectionStart());
+        });
+        assertEquals(0, textChanges[0]);
+    }
+
+    private static void waitForAnimations() throws InterruptedException {
+        Thread.sleep(500);
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * Reports the heap retained by each of 500 plain EditTexts, then by the engines added to them: idle, once drawn, and
+     * once released through their detach path.
+     */
+    @Test
+    public void benchmarkRetainedHeapPerField() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Canvas canvas = new Canvas(Bitmap.createBitmap(1000, 300, Bitmap.Config.ARGB_8888));
+        int count = 500;
+        List<EditText> editTexts = new ArrayList<>();
+        List<FieldEngine> engines = new ArrayList<>();
+        long[] bytes = new long[4];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            long start = retainedHeap();
+            for (int i = 0; i < count; i++) {
+                editTexts.add(new EditText(context));
+            }
+            bytes[0] = (retainedHeap() - start) / count;
+            start = retainedHeap();
+            for (EditText editText : editTexts) {
+                engines.add(new FieldEngine(editText, context, null));
+            }
+            long idle = retainedHeap();
+            bytes[1] = (idle - start) / count;
+            for (int i = 0; i < count; i++) {
+                EditText editText = editTexts.get(i);
+                editText.layout(0, 0, 1000, 300);
+                engines.get(i).draw(canvas);
+                editText.draw(canvas);
+            }
+            bytes[2] = (retainedHeap() - idle) / count;
+            for (FieldEngine engine : engines) {
+                engine.onDetachedFromWindow();
+            }
+            bytes[3] = (retainedHeap() - idle) / count;
+        });
+        assertEquals(count, engines.size());
+        Log.i(TAG, "Retained heap per field: EditText " + bytes[0] + "B, its engine " + bytes[1]
+                + "B, over the idle engine once drawn " + bytes[2] + "B, once released " + bytes[3] + "B");
+    }
+
+    /**
+     * @return The bytes allocated on the Java and the native heaps, after collecting the garbage.
+     */
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+
+    @Test
+    public void testDetachedFieldKeepsItsIconRoomAndSharesTheIcon() {
+        Context context = ApplicationProvider.getApplicationContext();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Bitmap icon = IconCache.obtain(context, R.drawable.met_ic_clear, METStyle.obtain(context, 0).iconSize);
+            EditText editText = new EditText(context);
+            FieldEngine engine = new FieldEngine(editText, context, null);
+            engine.setIconLeft(R.drawable.met_ic_clear);
+            FieldEngine otherEngine = new FieldEngine(new EditText(context), context, null);
+            otherEngine.setIconLeft(R.drawable.met_ic_clear);
+            assertSame(icon, engine.getIconLeftBitmap());
+            assertSame(icon, otherEngine.getIconLeftBitmap());
+
+            int paddingLeft = editText.getPaddingLeft();
+            engine.onDetachedFromWindow();
+            // Too mild to evict the icons
+            IconCache.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+            assertNull(engine.getIconLeftBitmap());
+            assertEquals(paddingLeft, editText.getPaddingLeft());
+            // Still shown by the other field, only dropped
+            assertFalse(icon.isRecycled());
+            engine.onAttachedToWindow();
+            assertSame(icon, engine.getIconLeftBitmap());
+            assertEquals(paddingLeft, editText.getPaddingLeft());
+        });
+    }
+
+    @Test
+    public void testIconIsDecodedInTheBackgroundWithItsRoomReserved() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        int iconSize = METStyle.obtain(context, 0).iconSize;
+        IconCache.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            MaterialEditText editText = new MaterialEditText(context);
+            int paddingLeft = editText.getPaddingLeft();
+            editText.setIconLeft(R.drawable.met_ic_clear);
+            assertNull(IconCache.get(context, R.drawable.met_ic_clear, iconSize));
+            assertTrue(editText.getPaddingLeft() > paddingLeft);
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        Bitmap[] icon = new Bitmap[1];
+        while (icon[0] == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> icon[0] = IconCache.get(context, R.drawable.met_ic_clear, iconSize));
+        }
+        assertTrue(icon[0] != null && Math.max(icon[0].getWidth(), icon[0].getHeight()) <= iconSize);
+    }
+
+    @Test
+    public void testIconsAreCachedPerThemeAndConfiguration() {
+        Context context = ApplicationProvider.getApplicationContext();
+        int iconSize = METStyle.obtain(context, 0).iconSize;
+        Context dark = new ContextThemeWrapper(context, android.R.style.Theme_Material);
+        Context light = new ContextThemeWrapper(context, android.R.style.Theme_Material_Light);
+        Bitmap darkIcon = IconCache.obtain(dark, R.drawable.met_ic_clear, iconSize);
+        Bitmap lightIcon = IconCache.obtain(light, R.drawable.met_ic_clear, iconSize);
+        assertNotSame(darkIcon, lightIcon);
+        assertSame(darkIcon, IconCache.get(dark, R.drawable.met_ic_clear, iconSize));
+        assertSame(lightIcon, IconCache.get(light, R.drawable.met_ic_clear, iconSize));
+
+        // The same theme, under another night mode and density
+        Context day = METStyleTest.themedContext(160, Configuration.UI_MODE_NIGHT_NO);
+        Context night = METStyleTest.themedContext(320, Configuration.UI_MODE_NIGHT_YES);
+        Bitmap dayIcon = IconCache.obtain(day, R.drawable.met_ic_clear, iconSize);
+        Bitmap nightIcon = IconCache.obtain(night, R.drawable.met_ic_clear, iconSize);
+        assertNotSame(dayIcon, nightIcon);
+        assertSame(dayIcon, IconCache.get(day, R.drawable.met_ic_clear, iconSize));
+        assertSame(nightIcon, IconCache.get(night, R.drawable.met_ic_clear, iconSize));
+    }
+
+    private static class LayoutCountingEditText extends MaterialEditText {
+
+        int layoutRequests;
+
+        LayoutCountingEditText(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestLayout() {
+            super.requestLayout();
+            layoutRequests++;
+        }
+    }
+
+    private static class InvalidationRecordingEditText extends MaterialEditText {
+
+        final List<Rect> dirtyRects = new ArrayList<>();
+
+        InvalidationRecordingEditText(Context context) {
+            super(context);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void invalidate(Rect dirty) {
+            super.invalidate(dirty);
+            dirtyRects.add(new Rect(dirty));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.rengwuxian.materialedittext.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.StandardCharsets;
+import java.text.BreakIterator;
+import java.util.Random;
+
+@RunWith(AndroidJUnit4.class)
+public class LengthCheckersTest {
+
+    private static final String TAG = "LengthCheckersTest";
+
+    /**
+     * Latin, combining marks, CJK, Hangul syllables and jamo, Cyrillic, Hebrew, CRLF and emoji outside the BMP.
+     */
+    private static final String[] BASIC_SAMPLES = {"a", "Z", " ", "\u00e9", "e\u0301", "\u4e2d", "\u6587", "\ud55c", "\u30a2",
+            "\u042f", "\u05e9", "\u1100\u1161\u11a8", "\r\n", "\ud83d\ude00", "\ud83c\uddeb\ud83c\uddf7"};
+
+    /**
+     * Emoji sequences with modifiers and zero width joiners, only segmented as one grapheme by recent ICU versions.
+     */
+    private static final String[] EMOJI_SAMPLES = {"\ud83d\udc4d\ud83c\udffd", "\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67"};
+
+    private final METIncrementalLengthChecker[] checkers = {new CodePointLengthChecker(), new GraphemeLengthChecker(),
+            new CjkWeightedLengthChecker(), new Utf8ByteLengthChecker()};
+
+    @Test
+    public void testCodePointLengthMatchesString() {
+        String text = mixedText(new Random(1), 1000);
+        assertEquals(text.codePointCount(0, text.length()), new CodePointLengthChecker().getLength(text));
+    }
+
+    @Test
+    public void testUtf8ByteLengthMatchesEncoding() {
+        String text = mixedText(new Random(2), 1000) + "\ud800";
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, new Utf8ByteLengthChecker().getLength(text));
+    }
+
+    @Test
+    public void testGraphemeLengthMatchesBreakIterator() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            String text = basicText(random, 20);
+            assertEquals(text, graphemeCount(text), new GraphemeLengthChecker().getLength(text));
+        }
+    }
+
+    @Test
+    public void testCjkWeightedLength() {
+        assertEquals(1 + 2 + 2 + 2, new CjkWeightedLengthChecker().getLength("a\u4e2d\ud55c\u30a2"));
+        assertEquals(1 + 3, new CjkWeightedLengthChecker(3).getLength("a\u4e2d"));
+    }
+
+    @Test
+    public void testRangeLengthsAddUpAtBoundaries() {
+        Random random = new Random(4);
+        for (METIncrementalLengthChecker checker : checkers) {
+            for (int i = 0; i < 200; i++) {
+                String text = mixedText(random, 20);
+                int offset = random.nextInt(text.length() + 1);
+                int from = checker.getBoundaryBefore(text, offset);
+                int to = checker.getBoundaryAfter(text, offset);
+                assertEquals(checker.getLength(text), checker.getLength(text, 0, from) + checker.getLength(text, from, text.length()));
+                assertEquals(checker.getLength(text), checker.getLength(text, 0, to) + checker.getLength(text, to, text.length()));
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkMixedScriptText() {
+        String text = mixedText(new Random(5), 10000);
+        for (METIncrementalLengthChecker checker : checkers) {
+            checker.getLength(text); // Warm up
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                checker.getLength(text);
+            }
+            long full = (System.nanoTime() - start) / 100;
+            start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                int from = checker.getBoundaryBefore(text, 5000);
+                checker.getLength(text, from, checker.getBoundaryAfter(text, 5001));
+            }
+            long delta = (System.nanoTime() - start) / 100;
+            Log.i(TAG, checker.getClass().getSimpleName() + " on " + text.length() + " chars: full " + full + "ns, single char delta " + delta + "ns");
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            graphemeCount(text);
+        }
+        Log.i(TAG, "BreakIterator on " + text.length() + " chars: " + (System.nanoTime() - start) / 100 + "ns");
+    }
+
+    private static String mixedText(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            int index = random.nextInt(BASIC_SAMPLES.length + EMOJI_SAMPLES.length);
+            builder.append(index < BASIC_SAMPLES.length ? BASIC_SAMPLES[index] : EMOJI_SAMPLES[index - BASIC_SAMPLES.length]);
+        }
+        return builder.toString();
+    }
+
+    private static String basicText(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < length) {
+            builder.append(BASIC_SAMPLES[random.nextInt(BASIC_SAMPLES.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static int graphemeCount(String text) {
+        BreakIterator iterator = BreakIterator.getCharacterInstance();
+        iterator.setText(text);
+        int count = 0;
+        while (iterator.next() != BreakIterator.DONE) {
+            count++;
+        }
+        return count;
+    }
+}
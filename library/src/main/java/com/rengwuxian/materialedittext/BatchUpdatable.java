@@ -0,0 +1,12 @@
+package com.rengwuxian.materialedittext;
+
+/**
+ * Fields whose changes can be grouped, so that {@link METForm} can batch all of its fields at once.
+ */
+interface BatchUpdatable {
+
+  void beginBatchUpdate();
+
+  void endBatchUpdate();
+
+}
@@ -0,0 +1,51 @@
+package com.rengwuxian.materialedittext;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import com.rengwuxian.materialedittext.validation.METIncrementalLengthChecker;
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+/**
+ * Entry point for every call into user supplied validators and length checkers, so they can be timed by
+ * {@link METValidationMonitor} and {@link METStrictMode}. Calls are made directly while both are disabled.
+ */
+final class Callbacks {
+
+  private Callbacks() {
+  }
+
+  static boolean isValid(@NonNull View field, @NonNull METValidator validator, CharSequence text, boolean isEmpty) {
+    boolean monitored = METValidationMonitor.isEnabled();
+    boolean strict = METStrictMode.isActive();
+    if (!monitored && !strict) return validator.isValid(text, isEmpty);
+
+    long start = System.nanoTime();
+    boolean valid = validator.isValid(text, isEmpty);
+    long duration = System.nanoTime() - start;
+    if (monitored) METValidationMonitor.record(field, validator, valid, duration);
+    if (strict) METStrictMode.check(field, validator, duration);
+    return valid;
+  }
+
+  static int getLength(@NonNull View field, @NonNull METLengthChecker lengthChecker, CharSequence text) {
+    if (!METStrictMode.isActive()) return lengthChecker.getLength(text);
+
+    long start = System.nanoTime();
+    int length = lengthChecker.getLength(text);
+    METStrictMode.check(field, lengthChecker, System.nanoTime() - start);
+    return length;
+  }
+
+  static int getLength(@NonNull View field, @NonNull METIncrementalLengthChecker lengthChecker, CharSequence text, int start, int end) {
+    if (!METStrictMode.isActive()) return lengthChecker.getLength(text, start, end);
+
+    long begin = System.nanoTime();
+    int length = lengthChecker.getLength(text, start, end);
+    METStrictMode.check(field, lengthChecker, System.nanoTime() - begin);
+    return length;
+  }
+
+}
@@ -0,0 +1,150 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.res.ColorStateList;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Colors of the decorations, derived from the colors a field was given.
+ * <p/>
+ * Immutable and shared by the fields given the same colors. A field only obtains a new palette when one of its colors
+ * changes, drawing never derives a color.
+ */
+final class ColorPalette {
+
+  /**
+   * Palettes obtained lately, forms usually give all their fields the same colors.
+   */
+  private static final int MAX_CACHED = 16;
+  private static final Map<Key, ColorPalette> cache = new LinkedHashMap<Key, ColorPalette>(MAX_CACHED, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, ColorPalette> eldest) {
+      return size() > MAX_CACHED;
+    }
+  };
+
+  /**
+   * Reused for the lookups, under the cache's lock: a palette is only built, and its key copied, on a miss.
+   */
+  private static final Key lookupKey = new Key();
+
+  final int baseColor;
+  final int primaryColor;
+  final int errorColor;
+
+  /**
+   * Given colors, -1 for the ones derived from the base color.
+   */
+  final int underlineColor;
+  final int floatingLabelTextColor;
+  final int helperTextColor;
+
+  final int underlineNormal;
+  final int underlineDisabled;
+  final int hint;
+  final int counter;
+  final int helper;
+  final int floatingLabel;
+  final int iconNormal;
+  final int iconDisabled;
+  final boolean baseLight;
+  final ColorStateList text;
+
+  /**
+   * Tints of the icons, per state.
+   */
+  final ColorFilter iconNormalFilter;
+  final ColorFilter iconFocusedFilter;
+  final ColorFilter iconDisabledFilter;
+  final ColorFilter iconErrorFilter;
+
+  private ColorPalette(int baseColor, int primaryColor, int errorColor, int underlineColor, int floatingLabelTextColor, int helperTextColor) {
+    this.baseColor = baseColor;
+    this.primaryColor = primaryColor;
+    this.errorColor = errorColor;
+    this.underlineColor = underlineColor;
+    this.floatingLabelTextColor = floatingLabelTextColor;
+    this.helperTextColor = helperTextColor;
+
+    int secondary = baseColor & 0x00ffffff | 0x44000000;
+    underlineNormal = underlineColor != -1 ? underlineColor : baseColor & 0x00ffffff | 0x1E000000;
+    underlineDisabled = underlineColor != -1 ? underlineColor : secondary;
+    hint = secondary;
+    counter = secondary;
+    helper = helperTextColor != -1 ? helperTextColor : secondary;
+    floatingLabel = floatingLabelTextColor != -1 ? floatingLabelTextColor : secondary;
+    baseLight = Colors.isLight(baseColor);
+    iconNormal = baseColor & 0x00ffffff | (baseLight ? 0xff000000 : 0x8a000000);
+    iconDisabled = baseColor & 0x00ffffff | (baseLight ? 0x4c000000 : 0x42000000);
+    text = new ColorStateList(new int[][]{new int[]{android.R.attr.state_enabled}, new int[]{}},
+            new int[]{baseColor & 0x00ffffff | 0xdf000000, secondary});
+    iconNormalFilter = new PorterDuffColorFilter(iconNormal, PorterDuff.Mode.SRC_IN);
+    iconFocusedFilter = new PorterDuffColorFilter(primaryColor, PorterDuff.Mode.SRC_IN);
+    iconDisabledFilter = new PorterDuffColorFilter(iconDisabled, PorterDuff.Mode.SRC_IN);
+    iconErrorFilter = new PorterDuffColorFilter(errorColor, PorterDuff.Mode.SRC_IN);
+  }
+
+  /**
+   * @return The palette derived from the given colors, shared with the fields given the same ones.
+   */
+  static ColorPalette obtain(int baseColor, int primaryColor, int errorColor, int underlineColor, int floatingLabelTextColor, int helperTextColor) {
+    synchronized (cache) {
+      lookupKey.set(baseColor, primaryColor, errorColor, underlineColor, floatingLabelTextColor, helperTextColor);
+      ColorPalette palette = cache.get(lookupKey);
+      if (palette == null) {
+        palette = new ColorPalette(baseColor, primaryColor, errorColor, underlineColor, floatingLabelTextColor, helperTextColor);
+        Key key = new Key();
+        key.set(baseColor, primaryColor, errorColor, underlineColor, floatingLabelTextColor, helperTextColor);
+        cache.put(key, palette);
+      }
+      return palette;
+    }
+  }
+
+  /**
+   * The given colors a palette is derived from.
+   */
+  private static final class Key {
+    private int baseColor;
+    private int primaryColor;
+    private int errorColor;
+    private int underlineColor;
+    private int floatingLabelTextColor;
+    private int helperTextColor;
+
+    void set(int baseColor, int primaryColor, int errorColor, int underlineColor, int floatingLabelTextColor, int helperTextColor) {
+      this.baseColor = baseColor;
+      this.primaryColor = primaryColor;
+      this.errorColor = errorColor;
+      this.underlineColor = underlineColor;
+      this.floatingLabelTextColor = floatingLabelTextColor;
+      this.helperTextColor = helperTextColor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return baseColor == that.baseColor && primaryColor == that.primaryColor && errorColor == that.errorColor
+              && underlineColor == that.underlineColor && floatingLabelTextColor == that.floatingLabelTextColor
+              && helperTextColor == that.helperTextColor;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = baseColor;
+      result = 31 * result + primaryColor;
+      result = 31 * result + errorColor;
+      result = 31 * result + underlineColor;
+      result = 31 * result + floatingLabelTextColor;
+      result = 31 * result + helperTextColor;
+      return result;
+    }
+  }
+
+}
@@ -1,15 +1,53 @@
 package com.rengwuxian.materialedittext;
 
 import android.graphics.Color;
+import android.os.Build;
 
 /**
  * Created by Administrator on 2014/12/12.
  */
 public class Colors {
   public static boolean isLight(int color) {
-    return Math.sqrt(
-        Color.red(color) * Color.red(color) * .241 +
-            Color.green(color) * Color.green(color) * .691 +
-            Color.blue(color) * Color.blue(color) * .068) > 130;
+    // Perceived brightness above 130, squared and in thousandths to stay in ints
+    int red = Color.red(color);
+    int green = Color.green(color);
+    int blue = Color.blue(color);
+    return red * red * 241 + green * green * 691 + blue * blue * 68 > 130 * 130 * 1000;
+  }
+
+  /**
+   * Interpolate between two colors like {@link android.animation.ArgbEvaluator} does on this device, without boxing
+   * them: in linear space from API 26, component by component before.
+   */
+  public static int lerp(float fraction, int startColor, int endColor) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) return lerpInLinearSpace(fraction, startColor, endColor);
+    int startA = (startColor >> 24) & 0xff;
+    int startR = (startColor >> 16) & 0xff;
+    int startG = (startColor >> 8) & 0xff;
+    int startB = startColor & 0xff;
+    return (startA + (int) (fraction * (((endColor >> 24) & 0xff) - startA))) << 24
+        | (startR + (int) (fraction * (((endColor >> 16) & 0xff) - startR))) << 16
+        | (startG + (int) (fraction * (((endColor >> 8) & 0xff) - startG))) << 8
+        | (startB + (int) (fraction * ((endColor & 0xff) - startB)));
+  }
+
+  private static int lerpInLinearSpace(float fraction, int startColor, int endColor) {
+    float startA = ((startColor >> 24) & 0xff) / 255f;
+    float startR = toLinear((startColor >> 16) & 0xff);
+    float startG = toLinear((startColor >> 8) & 0xff);
+    float startB = toLinear(startColor & 0xff);
+    float a = startA + fraction * (((endColor >> 24) & 0xff) / 255f - startA);
+    float r = startR + fraction * (toLinear((endColor >> 16) & 0xff) - startR);
+    float g = startG + fraction * (toLinear((endColor >> 8) & 0xff) - startG);
+    float b = startB + fraction * (toLinear(endColor & 0xff) - startB);
+    return Math.round(a * 255f) << 24 | toSrgb(r) << 16 | toSrgb(g) << 8 | toSrgb(b);
+  }
+
+  private static float toLinear(int component) {
+    return (float) Math.pow(component / 255f, 2.2);
+  }
+
+  private static int toSrgb(float component) {
+    return Math.round((float) Math.pow(component, 1.0 / 2.2) * 255f);
   }
 }
@@ -0,0 +1,120 @@
+package com.rengwuxian.materialedittext;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.RenderNode;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Recording of a field's decorations, replayed until they change.
+ * <p/>
+ * Hardware canvases replay a {@link RenderNode} (API 29+) as a single operation. Software canvases, and hardware ones
+ * before API 29, replay a {@link Picture}: the recorded operations are issued again, but none of the measuring, color
+ * evaluation and text layout behind them.
+ */
+final class DecorationCache {
+
+  /**
+   * Whether the decorations are recorded at all. Only disabled to compare the draw costs.
+   */
+  private final boolean enabled;
+
+  private RenderNode renderNode;
+  private Picture picture;
+  private boolean recordedOnRenderNode;
+  private volatile boolean valid;
+
+  DecorationCache() {
+    this(true);
+  }
+
+  @VisibleForTesting
+  DecorationCache(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Discard the recording, the next {@link #draw(Canvas, int, int, Drawing)} records the decorations again.
+   */
+  void invalidate() {
+    valid = false;
+  }
+
+  /**
+   * Replay the decorations, after recording them if they changed.
+   *
+   * @param width  Width of the area the decorations are drawn in, from the origin of the canvas.
+   * @param height Height of the area the decorations are drawn in, from the origin of the canvas.
+   */
+  void draw(@NonNull Canvas canvas, int width, int height, @NonNull Drawing drawing) {
+    if (!enabled || width <= 0 || height <= 0) {
+      drawing.draw(canvas);
+      return;
+    }
+    boolean onRenderNode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated();
+    if (!valid || recordedOnRenderNode != onRenderNode) {
+      if (onRenderNode) {
+        if (renderNode == null) renderNode = Api29Impl.create();
+        Api29Impl.record(renderNode, width, height, drawing);
+      } else {
+        if (picture == null) picture = new Picture();
+        drawing.draw(picture.beginRecording(width, height));
+        picture.endRecording();
+      }
+      recordedOnRenderNode = onRenderNode;
+      valid = true;
+    }
+    if (onRenderNode) {
+      Api29Impl.draw(canvas, renderNode);
+    } else {
+      canvas.drawPicture(picture);
+    }
+  }
+
+  /**
+   * Free the recording, e.g. while the field is detached.
+   */
+  void release() {
+    valid = false;
+    picture = null;
+    if (renderNode != null) Api29Impl.discard(renderNode);
+  }
+
+  interface Drawing {
+    void draw(@NonNull Canvas canvas);
+  }
+
+  @RequiresApi(Build.VERSION_CODES.Q)
+  private static final class Api29Impl {
+
+    static RenderNode create() {
+      RenderNode renderNode = new RenderNode("METDecorations");
+      // Decorations may be drawn around the text area, e.g. the icons
+      renderNode.setClipToBounds(false);
+      return renderNode;
+    }
+
+    static void record(RenderNode renderNode, int width, int height, Drawing drawing) {
+      renderNode.setPosition(0, 0, width, height);
+      Canvas canvas = renderNode.beginRecording(width, height);
+      try {
+        drawing.draw(canvas);
+      } finally {
+        renderNode.endRecording();
+      }
+    }
+
+    static void draw(Canvas canvas, RenderNode renderNode) {
+      canvas.drawRenderNode(renderNode);
+    }
+
+    static void discard(RenderNode renderNode) {
+      renderNode.discardDisplayList();
+    }
+  }
+
+}
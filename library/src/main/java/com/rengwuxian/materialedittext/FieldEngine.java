@@ -0,0 +1,1869 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.text.Editable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.text.method.TransformationMethod;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.AutoCompleteTextView;
+import android.widget.EditText;
+import android.widget.TextView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State, decorations and behavior of {@link MaterialEditText}, {@link MaterialAutoCompleteTextView} and
+ * {@link MaterialMultiAutoCompleteTextView}, which only forward to it, and of the fields decorated by a
+ * {@link METDecorationController}.
+ * <p/>
+ * The engine owns the paddings of its field: it reserves the space of the floating label, the icons and the bottom
+ * texts around the inner paddings.
+ */
+final class FieldEngine implements METAnimationDriver.Target, BatchUpdatable {
+
+  static final int FLOATING_LABEL_NONE = 0;
+  static final int FLOATING_LABEL_NORMAL = 1;
+  static final int FLOATING_LABEL_HIGHLIGHT = 2;
+
+  /**
+   * Regions of the decorations, redrawn on their own when nothing else changed.
+   */
+  private static final int REGION_LABEL = 1;
+  private static final int REGION_BOTTOM = 1 << 1; // underline, counter, helper/error text and ellipsis
+  private static final int REGION_ICONS = 1 << 2;
+  private static final int REGION_CLEAR_BUTTON = 1 << 3;
+
+  private final TextView field;
+
+  /**
+   * Spacing between the main text and the inner top padding.
+   */
+  private int extraPaddingTop;
+
+  /**
+   * Spacing between the main text and the inner bottom padding.
+   */
+  private int extraPaddingBottom;
+
+  /**
+   * Extra spacing between the main text and the left, actually for the left icon.
+   */
+  private int extraPaddingLeft;
+
+  /**
+   * Extra spacing between the main text and the right, actually for the right icon.
+   */
+  private int extraPaddingRight;
+
+  /**
+   * Floating label's text size.
+   */
+  private int floatingLabelTextSize;
+
+  /**
+   * Floating label's text color.
+   */
+  private int floatingLabelTextColor;
+
+  /**
+   * Bottom text's size.
+   */
+  private int bottomTextSize;
+
+  /**
+   * Spacing between the main text and the floating label.
+   */
+  private int floatingLabelPadding;
+
+  /**
+   * Attributes the field was created with, and the settings it never changes: icons' geometry, bottom spacing (between
+   * the main text and the bottom components), bottom ellipsis's height and whether to check the characters count at the
+   * beginning it's shown.
+   */
+  private final METStyle style;
+
+  /**
+   * Whether the floating label should be shown. <p>
+   * Default is false.
+   */
+  private boolean floatingLabelEnabled;
+
+  /**
+   * Whether to highlight the floating label's text color when focused (with the main color). <p>
+   * Default is true.
+   */
+  private boolean highlightFloatingLabel;
+
+  /**
+   * Base color of the line and the texts. <p>
+   * Default is black.
+   */
+  private int baseColor;
+
+  /**
+   * Inner paddings, not the real paddings.
+   */
+  private int innerPaddingTop;
+  private int innerPaddingBottom;
+  private int innerPaddingLeft;
+  private int innerPaddingRight;
+
+  /**
+   * Underline's highlight color, and the highlight color of the floating label if app:highlightFloatingLabel is set true in the xml. default is black(when app:darkTheme is false) or white(when app:darkTheme is true)
+   */
+  private int primaryColor;
+
+  /**
+   * Color for when something is wrong.(e.g. exceeding max characters).
+   */
+  private int errorColor;
+
+  /**
+   * Min characters count limit. 0 means no limit. <p>
+   * Default is 0. <p>
+   * NOTE: the character counter will increase the View's height.
+   */
+  private int minCharacters;
+
+  /**
+   * Max characters count limit. 0 means no limit. <p>
+   * Default is 0. <p>
+   * NOTE: The character counter will increase the View's height.
+   */
+  private int maxCharacters;
+
+  /**
+   * Whether to show the bottom ellipsis in singleLine mode. <p>
+   * Default is false. <p>
+   * NOTE: the bottom ellipsis will increase the View's height.
+   */
+  private boolean singleLineEllipsis;
+
+  /**
+   * Always show the floating label, instead of animating it in/out.<p>
+   * Default is false.
+   */
+  private boolean floatingLabelAlwaysShown;
+
+  /**
+   * Always show the helper text, no matter if the edit text is focused.<p>
+   * Default is false.
+   */
+  private boolean helperTextAlwaysShown;
+
+  /**
+   * Dynamic check whether to show the bottom ellipsis.
+   */
+  private boolean showBottomEllipsis;
+
+
+  /**
+   * Min bottom lines count.
+   */
+  private int minBottomLines;
+
+  /**
+   * Reserved bottom text lines count, no matter if there is some helper/error text.
+   */
+  private int minBottomTextLines;
+
+  /**
+   * Real-time bottom lines count. Used for bottom extending/collapsing animation.
+   */
+  private float currentBottomLines;
+
+  /**
+   * Bottom lines count reserved by the bottom padding. Only follows {@link #currentBottomLines} at the start
+   * (extending) or at the end (collapsing) of the animation, unless {@link #animateBottomLinesLayout} is set.
+   */
+  private float layoutBottomLines;
+
+  /**
+   * Whether to relayout on every frame of the bottom extending/collapsing animation.<p>
+   * Default is false.
+   */
+  private boolean animateBottomLinesLayout;
+
+  /**
+   * Bottom lines count.
+   */
+  private float bottomLines;
+
+  /**
+   * Helper text at the bottom.
+   */
+  private String helperText;
+
+  /**
+   * Helper text color.
+   */
+  private int helperTextColor = -1;
+
+  /**
+   * Error text for manually invoked {@link #setError(CharSequence)}.
+   */
+  private String tempErrorText;
+
+  /**
+   * Animation fraction of the floating label (0 as totally hidden).
+   */
+  private float floatingLabelFraction;
+
+  /**
+   * Whether the floating label is being shown.
+   */
+  private boolean floatingLabelShown;
+
+  /**
+   * Floating label's focusFraction.
+   */
+  private float focusFraction;
+
+  /**
+   * The font used for the accent texts (floating label, error/helper text, character counter, etc.)
+   */
+  private Typeface accentTypeface;
+
+  /**
+   * Text for the floatLabel if different from the hint.
+   */
+  private CharSequence floatingLabelText;
+
+  /**
+   * Whether or not to show the underline.<p>
+   * Shown by default.
+   */
+  private boolean hideUnderline;
+
+  /**
+   * Underline's color, for normal state.
+   */
+  private int underlineColor;
+
+  /**
+   * Whether to validate as soon as the text has changed.<p>
+   * Default is false.
+   */
+  private boolean autoValidate;
+
+  /**
+   * Whether the characters count is valid.
+   */
+  private boolean charactersCountValid;
+
+  /**
+   * Whether use animation to show/hide the floating label.
+   */
+  private boolean floatingLabelAnimating;
+
+
+  /**
+   * Left Icon, tinted while drawing.
+   */
+  private Bitmap iconLeftBitmap;
+
+  /**
+   * Right Icon, tinted while drawing.
+   */
+  private Bitmap iconRightBitmap;
+
+  /**
+   * Resources of the icons obtained from the {@link IconCache}, -1 for the ones given otherwise. Those icons are
+   * dropped while the field is detached and obtained again once it's reattached.
+   */
+  @DrawableRes
+  private int iconLeftRes = -1;
+  @DrawableRes
+  private int iconRightRes = -1;
+
+  /**
+   * Auto validate when focus lost.
+   */
+  private boolean validateOnFocusLost;
+
+  private boolean showClearButton;
+  private boolean firstShown;
+  private boolean clearButtonTouched;
+  private boolean clearButtonClicking;
+  private ColorStateList textColorStateList;
+  private ColorStateList textColorHintStateList;
+  /**
+   * Colors derived from the ones above, obtained again by their setters only.
+   */
+  private ColorPalette palette;
+  /**
+   * Theme the colors above are taken from, if any.
+   */
+  private METTheme theme;
+  /**
+   * Paints of this field: fields may be inflated off the main thread, and the bottom text layout keeps the text paint.
+   */
+  private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+  /**
+   * Draws the dashed underline of disabled fields in a single line, created on the first use.
+   */
+  private Paint dashedUnderlinePaint;
+  private StaticLayout textLayout;
+  /**
+   * Width of the characters counter the bottom text was laid out beside.
+   */
+  private int textLayoutCounterWidth;
+  private View.OnFocusChangeListener innerFocusChangeListener;
+  private View.OnFocusChangeListener outerFocusChangeListener;
+  private TextWatcher textWatcher;
+
+  /**
+   * Recording of the decorations, replayed while only the text or the caret changes. Created on the first draw, the
+   * fields of a long form that are never scrolled to don't hold one.
+   */
+  private DecorationCache decorationCache;
+  private DecorationCache.Drawing decorationDrawing;
+
+  /**
+   * State of the View the decorations were last drawn with.
+   */
+  private int drawnScrollX;
+  private int drawnScrollY;
+  private int drawnWidth;
+  private int drawnHeight;
+  private int drawnPaddingBottom;
+  private int drawnBaseline;
+  private int drawnGravity;
+  private boolean drawnFocused;
+  private boolean drawnEnabled;
+
+  /**
+   * Bounds of the regions as last drawn, only kept before API 28 (see {@link #invalidate(int)}). Null until drawn.
+   */
+  private RegionBounds regionBounds;
+  private List<METValidator> validators;
+  private final LengthCounter lengthCounter;
+
+  /**
+   * Nesting depth of {@link #beginBatchUpdate()}, and whether the text changed inside the batch with auto validation on.
+   */
+  private int batchDepth;
+  private boolean batchValidationPending;
+
+  FieldEngine(@NonNull TextView field, @NonNull Context context, @Nullable AttributeSet attrs) {
+    this(field, context, attrs, null, null);
+  }
+
+  FieldEngine(@NonNull TextView field, @NonNull METStyle style) {
+    this(field, field.getContext(), null, style, null);
+  }
+
+  FieldEngine(@NonNull TextView field, @NonNull MaterialEditText.Builder builder) {
+    this(field, field.getContext(), null, builder.style, builder);
+  }
+
+  private FieldEngine(@NonNull TextView field, @NonNull Context context, @Nullable AttributeSet attrs, @Nullable METStyle preset,
+                      @Nullable MaterialEditText.Builder builder) {
+    this.field = field;
+    lengthCounter = new LengthCounter(field);
+    if (field.isInEditMode()) {
+      style = METStyle.EDIT_MODE;
+      updatePalette();
+      return;
+    }
+    style = preset != null ? preset : METStyle.resolve(context, attrs);
+
+    textColorStateList = style.textColor;
+    textColorHintStateList = style.textColorHint;
+    baseColor = style.baseColor;
+    primaryColor = style.primaryColor;
+    setFloatingLabelInternal(style.floatingLabel);
+    errorColor = style.errorColor;
+    minCharacters = style.minCharacters;
+    maxCharacters = style.maxCharacters;
+    singleLineEllipsis = style.singleLineEllipsis;
+    helperText = style.helperText;
+    helperTextColor = style.helperTextColor;
+    minBottomTextLines = style.minBottomTextLines;
+    if (style.accentTypeface != null) {
+      accentTypeface = style.accentTypeface;
+      textPaint.setTypeface(accentTypeface);
+    }
+    if (style.typeface != null) {
+      field.setTypeface(style.typeface);
+    }
+    floatingLabelText = style.floatingLabelText != null ? style.floatingLabelText : field.getHint();
+    floatingLabelPadding = style.floatingLabelPadding;
+    floatingLabelTextSize = style.floatingLabelTextSize;
+    floatingLabelTextColor = style.floatingLabelTextColor;
+    floatingLabelAnimating = style.floatingLabelAnimating;
+    bottomTextSize = style.bottomTextSize;
+    hideUnderline = style.hideUnderline;
+    underlineColor = style.underlineColor;
+    autoValidate = style.autoValidate;
+    updatePalette();
+    iconLeftRes = style.iconLeft;
+    iconRightRes = style.iconRight;
+    showClearButton = style.clearButton;
+    floatingLabelAlwaysShown = style.floatingLabelAlwaysShown;
+    helperTextAlwaysShown = style.helperTextAlwaysShown;
+    validateOnFocusLost = style.validateOnFocusLost;
+    innerPaddingLeft = style.paddingLeft;
+    innerPaddingTop = style.paddingTop;
+    innerPaddingRight = style.paddingRight;
+    innerPaddingBottom = style.paddingBottom;
+    if (builder != null) applyBuilder(builder);
+    loadIcons();
+
+    field.setBackground(null);
+    if (singleLineEllipsis) {
+      TransformationMethod transformationMethod = field.getTransformationMethod();
+      field.setSingleLine();
+      field.setTransformationMethod(transformationMethod);
+    }
+
+    initMinBottomLines();
+    initPadding();
+    initText();
+    initFloatingLabel();
+    initTextWatcher();
+    checkCharactersCount();
+  }
+
+  /**
+   * Take the values given to the builder, before anything is laid out.
+   */
+  private void applyBuilder(@NonNull MaterialEditText.Builder builder) {
+    if (builder.floatingLabel != null) setFloatingLabelInternal(builder.floatingLabel);
+    if (builder.floatingLabelText != null) floatingLabelText = builder.floatingLabelText;
+    if (builder.floatingLabelAlwaysShown != null) floatingLabelAlwaysShown = builder.floatingLabelAlwaysShown;
+    if (builder.helperText != null) helperText = builder.helperText.toString();
+    if (builder.helperTextAlwaysShown != null) helperTextAlwaysShown = builder.helperTextAlwaysShown;
+    if (builder.minCharacters != null) minCharacters = builder.minCharacters;
+    if (builder.maxCharacters != null) maxCharacters = builder.maxCharacters;
+    if (builder.baseColor != null) baseColor = builder.baseColor;
+    if (builder.primaryColor != null) primaryColor = builder.primaryColor;
+    if (builder.errorColor != null) errorColor = builder.errorColor;
+    if (builder.theme != null) {
+      theme = builder.theme;
+      theme.subscribe(this);
+      baseColor = theme.getBaseColor();
+      primaryColor = theme.getPrimaryColor();
+      errorColor = theme.getErrorColor();
+      underlineColor = theme.getUnderlineColor();
+      floatingLabelTextColor = theme.getFloatingLabelTextColor();
+      helperTextColor = theme.getHelperTextColor();
+    }
+    updatePalette();
+    if (builder.iconLeft != -1) iconLeftRes = builder.iconLeft;
+    if (builder.iconRight != -1) iconRightRes = builder.iconRight;
+    if (builder.showClearButton != null) showClearButton = builder.showClearButton;
+    if (builder.paddings != null) {
+      innerPaddingLeft = builder.paddings[0];
+      innerPaddingTop = builder.paddings[1];
+      innerPaddingRight = builder.paddings[2];
+      innerPaddingBottom = builder.paddings[3];
+    }
+    if (builder.lengthChecker != null) lengthCounter.setLengthChecker(builder.lengthChecker);
+    if (!builder.validators.isEmpty()) validators = new ArrayList<>(builder.validators);
+    if (builder.autoValidate != null) autoValidate = builder.autoValidate;
+    if (builder.errorText != null) {
+      tempErrorText = builder.errorText.toString();
+    } else if (autoValidate && hasValidators()) {
+      METValidator failing = findFailingValidator();
+      if (failing != null) tempErrorText = failing.getErrorMessage().toString();
+    }
+  }
+
+  private void initPadding() {
+    extraPaddingTop = floatingLabelEnabled ? floatingLabelTextSize + floatingLabelPadding : floatingLabelPadding;
+    textPaint.setTextSize(bottomTextSize);
+    Paint.FontMetrics textMetrics = textPaint.getFontMetrics();
+    extraPaddingBottom = (int) ((textMetrics.descent - textMetrics.ascent) * layoutBottomLines) + (hideUnderline ? style.bottomSpacing : style.bottomSpacing * 2);
+    extraPaddingLeft = !hasIconLeft() ? 0 : (style.iconOuterWidth + style.iconPadding);
+    extraPaddingRight = !hasIconRight() ? 0 : (style.iconOuterWidth + style.iconPadding);
+    correctPaddings();
+  }
+
+  /**
+   * Calculate {@link #minBottomLines}.
+   */
+  private void initMinBottomLines() {
+    boolean extendBottom = minCharacters > 0 || maxCharacters > 0 || singleLineEllipsis || tempErrorText != null || helperText != null;
+    layoutBottomLines = currentBottomLines = minBottomLines = minBottomTextLines > 0 ? minBottomTextLines : extendBottom ? 1 : 0;
+  }
+
+  private void initFloatingLabel() {
+    // Observe the focus state to animate the floating label's text color appropriately
+    innerFocusChangeListener = (v, hasFocus) -> {
+      if (floatingLabelEnabled && highlightFloatingLabel) {
+        if (hasFocus) {
+          animateFocusFraction(1f);
+        } else {
+          animateFocusFraction(0f);
+        }
+      }
+      correctPaddings();
+      if (validateOnFocusLost && !hasFocus) validate();
+      if (outerFocusChangeListener != null) outerFocusChangeListener.onFocusChange(v, hasFocus);
+    };
+    field.setOnFocusChangeListener(innerFocusChangeListener);
+  }
+
+  /**
+   * Start from the text given before the engine was created. The text itself is left alone: the watchers, ours and the
+   * ones added to the field, aren't told about a text that didn't change.
+   */
+  private void initText() {
+    CharSequence text = field.getText();
+    if (!TextUtils.isEmpty(text)) {
+      setSelection(text.length());
+      floatingLabelFraction = 1;
+      floatingLabelShown = true;
+    }
+    resetHintTextColor();
+    resetTextColor();
+  }
+
+  private void initTextWatcher() {
+    field.addTextChangedListener(lengthCounter);
+    textWatcher = new TextWatcher() {
+      @Override
+      public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        // Not used
+      }
+
+      @Override
+      public void onTextChanged(CharSequence s, int start, int before, int count) {
+        // Not used
+      }
+
+      @Override
+      public void afterTextChanged(Editable s) {
+        // Floating label
+        if (floatingLabelEnabled) {
+          if (TextUtils.isEmpty(s)) {
+            if (floatingLabelShown) {
+              floatingLabelShown = false;
+              animateFloatingLabel(0f);
+            }
+          } else if (!floatingLabelShown) {
+            floatingLabelShown = true;
+            animateFloatingLabel(1f);
+          }
+        }
+
+        if (batchDepth > 0) {
+          // Deferred to endBatchUpdate()
+          if (autoValidate) {
+            batchValidationPending = true;
+          } else {
+            tempErrorText = null;
+            batchValidationPending = false;
+          }
+          return;
+        }
+        checkCharactersCount();
+        if (autoValidate) {
+          validate();
+        } else {
+          setError(null);
+        }
+        // Without validators nothing was laid out, while the counter may have grown
+        if (counterWidthChanged()) adjustBottomLines();
+        correctPaddings();
+        // The floating label redraws itself while it animates
+        invalidate(REGION_BOTTOM | REGION_ICONS | REGION_CLEAR_BUTTON);
+      }
+    };
+    field.addTextChangedListener(textWatcher);
+  }
+
+  /* ######## PUBLIC ######## */
+  void setIconLeft(@DrawableRes int res) {
+    iconLeftRes = res;
+    iconLeftBitmap = null;
+    loadIcons();
+    initPadding();
+  }
+
+  void setIconLeft(Drawable drawable) {
+    iconLeftRes = -1;
+    iconLeftBitmap = generateIcon(drawable);
+    initPadding();
+  }
+
+  void setIconLeft(Bitmap bitmap) {
+    iconLeftRes = -1;
+    iconLeftBitmap = generateIconCopy(bitmap);
+    initPadding();
+  }
+
+  void setIconRight(@DrawableRes int res) {
+    iconRightRes = res;
+    iconRightBitmap = null;
+    loadIcons();
+    initPadding();
+  }
+
+  void setIconRight(Drawable drawable) {
+    iconRightRes = -1;
+    iconRightBitmap = generateIcon(drawable);
+    initPadding();
+  }
+
+  void setIconRight(Bitmap bitmap) {
+    iconRightRes = -1;
+    iconRightBitmap = generateIconCopy(bitmap);
+    initPadding();
+  }
+
+  boolean isShowClearButton() {
+    return showClearButton;
+  }
+
+  void setShowClearButton(boolean show) {
+    showClearButton = show;
+    correctPaddings();
+  }
+
+  float getFloatingLabelFraction() {
+    return floatingLabelFraction;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Layout getBottomTextLayout() {
+    return textLayout;
+  }
+
+  @VisibleForTesting
+  void setDecorationCache(@NonNull DecorationCache decorationCache) {
+    this.decorationCache = decorationCache;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Bitmap getIconLeftBitmap() {
+    return iconLeftBitmap;
+  }
+
+  void setFloatingLabelFraction(float floatingLabelFraction) {
+    this.floatingLabelFraction = floatingLabelFraction;
+    invalidate(REGION_LABEL);
+  }
+
+  float getFocusFraction() {
+    return focusFraction;
+  }
+
+  void setFocusFraction(float focusFraction) {
+    this.focusFraction = focusFraction;
+    invalidate(REGION_LABEL);
+  }
+
+  float getCurrentBottomLines() {
+    return currentBottomLines;
+  }
+
+  void setCurrentBottomLines(float currentBottomLines) {
+    this.currentBottomLines = currentBottomLines;
+    if (animateBottomLinesLayout) {
+      layoutBottomLines = currentBottomLines;
+      initPadding();
+    } else {
+      invalidate(REGION_BOTTOM);
+    }
+  }
+
+  void setAnimateBottomLinesLayout(boolean animate) {
+    animateBottomLinesLayout = animate;
+  }
+
+  boolean isFloatingLabelAlwaysShown() {
+    return floatingLabelAlwaysShown;
+  }
+
+  void setFloatingLabelAlwaysShown(boolean floatingLabelAlwaysShown) {
+    this.floatingLabelAlwaysShown = floatingLabelAlwaysShown;
+    invalidate();
+  }
+
+  boolean isHelperTextAlwaysShown() {
+    return helperTextAlwaysShown;
+  }
+
+  void setHelperTextAlwaysShown(boolean helperTextAlwaysShown) {
+    this.helperTextAlwaysShown = helperTextAlwaysShown;
+    invalidate();
+  }
+
+  @Nullable
+  Typeface getAccentTypeface() {
+    return accentTypeface;
+  }
+
+  void setAccentTypeface(Typeface accentTypeface) {
+    this.accentTypeface = accentTypeface;
+    this.textPaint.setTypeface(accentTypeface);
+    initPadding();
+    layOutBottomText();
+    postInvalidate();
+  }
+
+  boolean isHideUnderline() {
+    return hideUnderline;
+  }
+
+  void setHideUnderline(boolean hideUnderline) {
+    this.hideUnderline = hideUnderline;
+    initPadding();
+    postInvalidate();
+  }
+
+  int getUnderlineColor() {
+    return underlineColor;
+  }
+
+  void setUnderlineColor(int color) {
+    this.underlineColor = color;
+    updatePalette();
+    postInvalidate();
+  }
+
+  CharSequence getFloatingLabelText() {
+    return floatingLabelText;
+  }
+
+  void setFloatingLabelText(@Nullable CharSequence floatingLabelText) {
+    this.floatingLabelText = floatingLabelText == null ? field.getHint() : floatingLabelText;
+    postInvalidate();
+  }
+
+  int getFloatingLabelTextSize() {
+    return floatingLabelTextSize;
+  }
+
+  void setFloatingLabelTextSize(int size) {
+    floatingLabelTextSize = size;
+    initPadding();
+  }
+
+  int getFloatingLabelTextColor() {
+    return floatingLabelTextColor;
+  }
+
+  void setFloatingLabelTextColor(int color) {
+    this.floatingLabelTextColor = color;
+    updatePalette();
+    postInvalidate();
+  }
+
+  int getBottomTextSize() {
+    return bottomTextSize;
+  }
+
+  void setBottomTextSize(int size) {
+    bottomTextSize = size;
+    initPadding();
+    layOutBottomText();
+  }
+
+  void setPaddings(int left, int top, int right, int bottom) {
+    innerPaddingTop = top;
+    innerPaddingBottom = bottom;
+    innerPaddingLeft = left;
+    innerPaddingRight = right;
+    correctPaddings();
+  }
+
+  int getInnerPaddingTop() {
+    return innerPaddingTop;
+  }
+
+  int getInnerPaddingBottom() {
+    return innerPaddingBottom;
+  }
+
+  int getInnerPaddingLeft() {
+    return innerPaddingLeft;
+  }
+
+  int getInnerPaddingRight() {
+    return innerPaddingRight;
+  }
+
+  void onAttachedToWindow() {
+    if (!firstShown) firstShown = true;
+    loadIcons();
+  }
+
+  /**
+   * Release what can be obtained again on reattach: the detached field may stay in memory for long, e.g. in a fragment
+   * on the back stack.
+   */
+  void onDetachedFromWindow() {
+    METAnimationDriver.endAll(this);
+    if (decorationCache != null) decorationCache.release();
+    // Still shared by the IconCache and the other fields, only the reference is dropped
+    if (iconLeftRes != -1) iconLeftBitmap = null;
+    if (iconRightRes != -1) iconRightBitmap = null;
+    textLayout = null;
+  }
+
+  void onLayout(boolean changed) {
+    if (changed) adjustBottomLines();
+  }
+
+  @Nullable
+  METTheme getTheme() {
+    return theme;
+  }
+
+  void setTheme(@Nullable METTheme theme) {
+    if (this.theme == theme) return;
+    if (this.theme != null) this.theme.unsubscribe(this);
+    this.theme = theme;
+    if (theme != null) {
+      theme.subscribe(this);
+      applyTheme(theme);
+    }
+  }
+
+  /**
+   * Take the theme's colors. Unlike {@link #setBaseColor(int)}, the text is left alone.
+   */
+  void applyTheme(@NonNull METTheme theme) {
+    baseColor = theme.getBaseColor();
+    primaryColor = theme.getPrimaryColor();
+    errorColor = theme.getErrorColor();
+    underlineColor = theme.getUnderlineColor();
+    floatingLabelTextColor = theme.getFloatingLabelTextColor();
+    helperTextColor = theme.getHelperTextColor();
+    updatePalette();
+    resetHintTextColor();
+    resetTextColor();
+    invalidate();
+  }
+
+  boolean isValidateOnFocusLost() {
+    return validateOnFocusLost;
+  }
+
+  void setValidateOnFocusLost(boolean validate) {
+    this.validateOnFocusLost = validate;
+  }
+
+  void setBaseColor(int color) {
+    if (baseColor != color) baseColor = color;
+    updatePalette();
+    resetHintTextColor();
+    resetTextColor();
+    postInvalidate();
+  }
+
+  void setPrimaryColor(int color) {
+    primaryColor = color;
+    updatePalette();
+    postInvalidate();
+  }
+
+  void setMetTextColor(ColorStateList colors) {
+    textColorStateList = colors;
+    resetTextColor();
+  }
+
+  void setMetHintTextColor(ColorStateList colors) {
+    textColorHintStateList = colors;
+    resetHintTextColor();
+  }
+
+  void setFloatingLabel(int mode) {
+    setFloatingLabelInternal(mode);
+    initPadding();
+  }
+
+  int getFloatingLabelPadding() {
+    return floatingLabelPadding;
+  }
+
+  void setFloatingLabelPadding(int padding) {
+    floatingLabelPadding = padding;
+    postInvalidate();
+  }
+
+  boolean isFloatingLabelAnimating() {
+    return floatingLabelAnimating;
+  }
+
+  void setFloatingLabelAnimating(boolean animating) {
+    floatingLabelAnimating = animating;
+  }
+
+  void setSingleLineEllipsis(boolean enabled) {
+    singleLineEllipsis = enabled;
+    initMinBottomLines();
+    initPadding();
+    layOutBottomText();
+    postInvalidate();
+  }
+
+  int getMaxCharacters() {
+    return maxCharacters;
+  }
+
+  void setMaxCharacters(int max) {
+    maxCharacters = max;
+    initMinBottomLines();
+    initPadding();
+    layOutBottomText();
+    postInvalidate();
+  }
+
+  int getMinCharacters() {
+    return minCharacters;
+  }
+
+  void setMinCharacters(int min) {
+    minCharacters = min;
+    initMinBottomLines();
+    initPadding();
+    layOutBottomText();
+    postInvalidate();
+  }
+
+  int getMinBottomTextLines() {
+    return minBottomTextLines;
+  }
+
+  void setMinBottomTextLines(int lines) {
+    minBottomTextLines = lines;
+    initMinBottomLines();
+    initPadding();
+    layOutBottomText();
+    postInvalidate();
+  }
+
+  boolean isAutoValidate() {
+    return autoValidate;
+  }
+
+  void setAutoValidate(boolean autoValidate) {
+    this.autoValidate = autoValidate;
+    if (autoValidate) validate();
+  }
+
+  int getErrorColor() {
+    return errorColor;
+  }
+
+  void setErrorColor(int color) {
+    errorColor = color;
+    updatePalette();
+    postInvalidate();
+  }
+
+  String getHelperText() {
+    return helperText;
+  }
+
+  void setHelperText(CharSequence helperText) {
+    this.helperText = helperText == null ? null : helperText.toString();
+    if (batchDepth > 0) return;
+    if (adjustBottomLines()) postInvalidate(REGION_BOTTOM);
+  }
+
+  int getHelperTextColor() {
+    return helperTextColor;
+  }
+
+  void setHelperTextColor(int color) {
+    helperTextColor = color;
+    updatePalette();
+    postInvalidate();
+  }
+
+  void setError(CharSequence errorText) {
+    tempErrorText = errorText == null ? null : errorText.toString();
+    if (batchDepth > 0) {
+      batchValidationPending = false;
+      return;
+    }
+    // The validity also switches the colors of the underline and the icons
+    if (adjustBottomLines()) postInvalidate(REGION_BOTTOM | REGION_ICONS);
+  }
+
+  CharSequence getError() {
+    return tempErrorText;
+  }
+
+  boolean isCharactersCountValid() {
+    return charactersCountValid;
+  }
+
+  boolean isValid(String regex) {
+    if (regex == null || TextUtils.isEmpty(field.getText())) return false;
+    Pattern pattern = Pattern.compile(regex);
+    Matcher matcher = pattern.matcher(field.getText());
+    return matcher.matches();
+  }
+
+  boolean validate(String regex, CharSequence errorText) {
+    boolean isValid = isValid(regex);
+    if (!isValid) setError(errorText);
+    postInvalidate(REGION_BOTTOM | REGION_ICONS);
+    return isValid;
+  }
+
+  boolean validateWith(@NonNull METValidator validator) {
+    CharSequence text = field.getText();
+    boolean isValid = Callbacks.isValid(field, validator, text, TextUtils.isEmpty(text));
+    if (!isValid) setError(validator.getErrorMessage());
+    postInvalidate(REGION_BOTTOM | REGION_ICONS);
+    return isValid;
+  }
+
+  boolean validate() {
+    if (!hasValidators()) return true;
+
+    METValidator failing = findFailingValidator();
+    setError(failing == null ? null : failing.getErrorMessage());
+    postInvalidate(REGION_BOTTOM | REGION_ICONS);
+    return failing == null;
+  }
+
+  /**
+   * @return The first validator rejecting the text, or null if all pass.
+   */
+  @Nullable
+  private METValidator findFailingValidator() {
+    CharSequence text = field.getText();
+    boolean isEmpty = TextUtils.isEmpty(text);
+    for (METValidator validator : validators) {
+      if (!Callbacks.isValid(field, validator, text, isEmpty)) return validator;
+    }
+    return null;
+  }
+
+  boolean hasValidators() {
+    return validators != null && !validators.isEmpty();
+  }
+
+  void addValidator(METValidator validator) {
+    if (validators == null) this.validators = new ArrayList<>();
+    this.validators.add(validator);
+  }
+
+  @Nullable
+  List<METValidator> getValidators() {
+    return this.validators;
+  }
+
+  void clearValidators() {
+    if (this.validators == null) return;
+    this.validators.clear();
+  }
+
+  void setLengthChecker(@Nullable METLengthChecker lengthChecker) {
+    lengthCounter.setLengthChecker(lengthChecker);
+    checkCharactersCount();
+    if (counterWidthChanged()) layOutBottomText();
+    postInvalidate();
+  }
+
+  @Nullable
+  METLengthChecker getLengthChecker() {
+    return lengthCounter.getLengthChecker();
+  }
+
+  @Override
+  public void beginBatchUpdate() {
+    batchDepth++;
+  }
+
+  @Override
+  public void endBatchUpdate() {
+    if (batchDepth == 0) throw new IllegalStateException("endBatchUpdate() called without beginBatchUpdate()");
+    if (batchDepth > 1) {
+      batchDepth--;
+      return;
+    }
+    // Still inside the batch, so validate() only records the error and the bottom lines jump to their final value
+    if (batchValidationPending) validate();
+    checkCharactersCount();
+    adjustBottomLines();
+    initPadding();
+    batchDepth = 0;
+    batchValidationPending = false;
+    invalidate();
+  }
+
+  void bind(CharSequence text, CharSequence helperText, CharSequence errorText) {
+    beginBatchUpdate();
+    try {
+      setTextWithoutFiltering(text);
+      setHelperText(helperText);
+      if (errorText != null) setError(errorText);
+    } finally {
+      endBatchUpdate();
+    }
+  }
+
+  void resetForReuse(@NonNull METFieldConfig config) {
+    beginBatchUpdate();
+    try {
+      METAnimationDriver.cancelAll(this);
+      clearButtonTouched = false;
+      clearButtonClicking = false;
+      firstShown = field.isAttachedToWindow();
+      minCharacters = config.getMinCharacters();
+      maxCharacters = config.getMaxCharacters();
+      autoValidate = config.isAutoValidate();
+      if (validators != null) validators.clear();
+      if (!config.getValidators().isEmpty()) {
+        if (validators == null) validators = new ArrayList<>();
+        validators.addAll(config.getValidators());
+      }
+      lengthCounter.setLengthChecker(config.getLengthChecker());
+      if (!TextUtils.equals(field.getHint(), config.getHint())) field.setHint(config.getHint());
+      floatingLabelText = config.getFloatingLabelText() == null ? field.getHint() : config.getFloatingLabelText();
+      helperText = config.getHelperText() == null ? null : config.getHelperText().toString();
+      tempErrorText = null;
+      initMinBottomLines();
+      bottomLines = minBottomLines;
+      setTextWithoutFiltering(config.getText());
+      if (config.getError() != null) setError(config.getError());
+      floatingLabelShown = floatingLabelEnabled && !TextUtils.isEmpty(field.getText());
+      floatingLabelFraction = floatingLabelShown ? 1 : 0;
+      focusFraction = floatingLabelEnabled && highlightFloatingLabel && field.hasFocus() ? 1 : 0;
+    } finally {
+      endBatchUpdate();
+    }
+  }
+
+  /**
+   * Stop observing the field. Its paddings are left as they are.
+   */
+  void release() {
+    METAnimationDriver.cancelAll(this);
+    if (theme != null) theme.unsubscribe(this);
+    if (textWatcher == null) return;
+    field.removeTextChangedListener(lengthCounter);
+    field.removeTextChangedListener(textWatcher);
+    textWatcher = null;
+    innerFocusChangeListener = null;
+    field.setOnFocusChangeListener(outerFocusChangeListener);
+  }
+
+  /**
+   * @return False if the listener must be set on the field itself, as the engine doesn't observe the focus.
+   */
+  boolean setOnFocusChangeListener(View.OnFocusChangeListener listener) {
+    if (innerFocusChangeListener == null) return false;
+    outerFocusChangeListener = listener;
+    return true;
+  }
+
+  /**
+   * @return True if the touch was on the bottom ellipsis, and the field must not handle it.
+   */
+  boolean onBottomEllipsisTouchEvent(MotionEvent event) {
+    if (singleLineEllipsis && field.getScrollX() > 0 && event.getAction() == MotionEvent.ACTION_DOWN && event.getX() < getPixel(4 * 5)
+            && event.getY() > field.getHeight() - extraPaddingBottom - innerPaddingBottom && event.getY() < field.getHeight() - innerPaddingBottom) {
+      setSelection(0);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return True if the touch was consumed by the clear button.
+   */
+  boolean onClearButtonTouchEvent(MotionEvent event) {
+    if (field.hasFocus() && showClearButton && field.isEnabled()) {
+      switch (event.getAction()) {
+        case MotionEvent.ACTION_DOWN:
+          if (insideClearButton(event)) {
+            clearButtonTouched = true;
+            clearButtonClicking = true;
+            return true;
+          }
+          break;
+        case MotionEvent.ACTION_MOVE:
+          if (clearButtonClicking && !insideClearButton(event)) {
+            clearButtonClicking = false;
+          }
+          if (clearButtonTouched) {
+            return true;
+          }
+          break;
+        case MotionEvent.ACTION_UP:
+          if (clearButtonClicking) {
+            if (!TextUtils.isEmpty(field.getText())) {
+              field.setText(null);
+            }
+            clearButtonClicking = false;
+          }
+          if (clearButtonTouched) {
+            clearButtonTouched = false;
+            return true;
+          }
+          break;
+        case MotionEvent.ACTION_CANCEL:
+          clearButtonTouched = false;
+          clearButtonClicking = false;
+          break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Draw the decorations, under the field's own content.
+   * <p/>
+   * The decorations are replayed from {@link #decorationCache} until they change, so a frame only redrawing the text or
+   * the caret doesn't measure, evaluate or lay out anything.
+   */
+  void draw(@NonNull Canvas canvas) {
+    if (decorationCache == null) {
+      decorationCache = new DecorationCache();
+      decorationDrawing = this::drawDecorations;
+    }
+    if (decorationStateChanged()) decorationCache.invalidate();
+    // Recorded relative to the View, the recording holds the whole area wherever the text is scrolled
+    int scrollX = field.getScrollX();
+    int scrollY = field.getScrollY();
+    canvas.translate(scrollX, scrollY);
+    decorationCache.draw(canvas, field.getWidth(), field.getHeight(), decorationDrawing);
+    canvas.translate(-scrollX, -scrollY);
+  }
+
+  private void drawDecorations(@NonNull Canvas canvas) {
+    canvas.save();
+    canvas.translate(-field.getScrollX(), -field.getScrollY());
+    int startX = field.getScrollX() + (!hasIconLeft() ? 0 : (style.iconOuterWidth + style.iconPadding));
+    int endX = field.getScrollX() + (!hasIconRight() ? field.getWidth() : field.getWidth() - style.iconOuterWidth - style.iconPadding);
+    int lineStartY = field.getScrollY() + field.getHeight() - field.getPaddingBottom();
+    boolean hasFocus = field.hasFocus();
+    boolean enabled = field.isEnabled();
+    updateRegionBounds(startX, endX, lineStartY);
+
+    boolean showBottomEllipsis = hasFocus && singleLineEllipsis && field.getScrollX() != 0;
+    if (this.showBottomEllipsis != showBottomEllipsis) {
+      // The bottom text makes room for the ellipsis
+      this.showBottomEllipsis = showBottomEllipsis;
+      textPaint.setTextSize(bottomTextSize);
+      getBottomLines();
+    }
+
+    // Draw the icon(s)
+    paint.setAlpha(255);
+    paint.setColorFilter(!isInternalValid() ? palette.iconErrorFilter : !enabled ? palette.iconDisabledFilter : hasFocus ? palette.iconFocusedFilter : palette.iconNormalFilter);
+    if (iconLeftBitmap != null) {
+      Bitmap icon = iconLeftBitmap;
+      int iconLeft = startX - style.iconPadding - style.iconOuterWidth + (style.iconOuterWidth - icon.getWidth()) / 2;
+      int iconTop = lineStartY + style.bottomSpacing - style.iconOuterHeight + (style.iconOuterHeight - icon.getHeight()) / 2;
+      canvas.drawBitmap(icon, iconLeft, iconTop, paint);
+    }
+    if (iconRightBitmap != null) {
+      Bitmap icon = iconRightBitmap;
+      int iconRight = endX + style.iconPadding + (style.iconOuterWidth - icon.getWidth()) / 2;
+      int iconTop = lineStartY + style.bottomSpacing - style.iconOuterHeight + (style.iconOuterHeight - icon.getHeight()) / 2;
+      canvas.drawBitmap(icon, iconRight, iconTop, paint);
+    }
+
+    // Draw the clear button
+    if (hasFocus && showClearButton && !TextUtils.isEmpty(field.getText()) && enabled) {
+      paint.setAlpha(255);
+      paint.setColorFilter(palette.iconNormalFilter);
+
+      int buttonLeft = isRTL() ? startX : endX - style.iconOuterWidth;
+      buttonLeft += (style.iconOuterWidth - style.clearButtonIcon.getWidth()) / 2;
+
+      Paint.FontMetrics fontMetrics = field.getPaint().getFontMetrics();
+      float textCenterY = field.getBaseline() + (fontMetrics.ascent + fontMetrics.descent) / 2;
+      int iconTop = (int) (textCenterY - (style.clearButtonIcon.getHeight() / 2f));
+
+      canvas.drawBitmap(style.clearButtonIcon, buttonLeft, iconTop, paint);
+    }
+    paint.setColorFilter(null);
+
+    // Draw the underline
+    if (!hideUnderline) {
+      lineStartY += style.bottomSpacing;
+      if (!isInternalValid()) { // not valid
+        paint.setColor(palette.errorColor);
+        canvas.drawRect(startX, lineStartY, endX, lineStartY + getPixel(2), paint);
+      } else if (!enabled) { // disabled
+        Paint dashedPaint = getDashedUnderlinePaint();
+        dashedPaint.setColor(palette.underlineDisabled);
+        float y = lineStartY + dashedPaint.getStrokeWidth() / 2;
+        canvas.drawLine(startX, y, endX, y, dashedPaint);
+      } else if (hasFocus) { // focused
+        paint.setColor(palette.primaryColor);
+        canvas.drawRect(startX, lineStartY, endX, lineStartY + getPixel(2), paint);
+      } else { // normal
+        paint.setColor(palette.underlineNormal);
+        canvas.drawRect(startX, lineStartY, endX, lineStartY + getPixel(1), paint);
+      }
+    }
+
+    textPaint.setTextSize(bottomTextSize);
+    // Dropped while detached
+    if (textLayout == null) getBottomLines();
+    Paint.FontMetrics textMetrics = textPaint.getFontMetrics();
+    float relativeHeight = -textMetrics.ascent - textMetrics.descent;
+    float bottomTextPadding = bottomTextSize + textMetrics.ascent + textMetrics.descent;
+
+    // Draw the characters counter
+    if ((hasFocus && hasCharactersCounter()) || !charactersCountValid) {
+      textPaint.setColor(charactersCountValid ? palette.counter : palette.errorColor);
+      String charactersCounterText = getCharactersCounterText();
+      canvas.drawText(charactersCounterText, isRTL() ? startX : endX - textPaint.measureText(charactersCounterText), lineStartY + style.bottomSpacing + relativeHeight, textPaint);
+    }
+
+    // Draw the bottom text
+    if (textLayout != null) {
+      if (tempErrorText != null || ((helperTextAlwaysShown || hasFocus) && !TextUtils.isEmpty(helperText))) { // error text or helper text
+        textPaint.setColor(tempErrorText != null ? palette.errorColor : palette.helper);
+        canvas.save();
+        if (isRTL()) {
+          canvas.translate(endX - textLayout.getWidth(), lineStartY + style.bottomSpacing - bottomTextPadding);
+        } else {
+          float bottomOffset = showBottomEllipsis ? getBottomTextLeftOffset() : getPixel(4);
+          canvas.translate(startX + bottomOffset, lineStartY + style.bottomSpacing - bottomTextPadding);
+        }
+        if (currentBottomLines < textLayout.getLineCount()) {
+          canvas.clipRect(0, 0, textLayout.getWidth(), bottomTextPadding + (textMetrics.descent - textMetrics.ascent) * currentBottomLines);
+        }
+        textLayout.draw(canvas);
+        canvas.restore();
+      }
+    }
+
+    // Draw the floating label
+    if (floatingLabelEnabled && !TextUtils.isEmpty(floatingLabelText)) {
+      textPaint.setTextSize(floatingLabelTextSize);
+      // Calculate the text color, never highlighted while disabled
+      float highlightFraction = enabled ? focusFraction : 0;
+      textPaint.setColor(Colors.lerp(highlightFraction, palette.floatingLabel, palette.primaryColor));
+
+      // Calculate the horizontal position
+      float floatingLabelWidth = textPaint.measureText(floatingLabelText.toString());
+      int floatingLabelStartX;
+      if ((field.getGravity() & Gravity.END) == Gravity.END || isRTL()) {
+        floatingLabelStartX = (int) (endX - floatingLabelWidth);
+      } else if ((field.getGravity() & Gravity.START) == Gravity.START) {
+        floatingLabelStartX = startX;
+      } else {
+        floatingLabelStartX = startX + (int) (innerPaddingLeft + (field.getWidth() - innerPaddingLeft - innerPaddingRight - floatingLabelWidth) / 2);
+      }
+
+      // Calculate the vertical position
+      int distance = floatingLabelPadding;
+      int floatingLabelStartY = (int) (innerPaddingTop + floatingLabelTextSize + floatingLabelPadding - distance * (floatingLabelAlwaysShown ? 1 : floatingLabelFraction) + field.getScrollY());
+
+      // Calculate the alpha
+      int alpha = ((int) ((floatingLabelAlwaysShown ? 1 : floatingLabelFraction) * 0xff * (0.74f * highlightFraction + 0.26f) * (floatingLabelTextColor != -1 ? 1 : Color.alpha(floatingLabelTextColor) / 256f)));
+      textPaint.setAlpha(alpha);
+
+      // Draw the floating label
+      canvas.drawText(floatingLabelText.toString(), floatingLabelStartX, floatingLabelStartY, textPaint);
+    }
+
+    // Draw the bottom ellipsis
+    if (showBottomEllipsis) {
+      paint.setColor(isInternalValid() ? palette.primaryColor : palette.errorColor);
+      float startY = lineStartY + style.bottomSpacing;
+      int ellipsisStartX;
+      if (isRTL()) {
+        ellipsisStartX = endX;
+      } else {
+        ellipsisStartX = startX;
+      }
+      int signum = isRTL() ? -1 : 1;
+      canvas.drawCircle(ellipsisStartX + (float) (signum * style.bottomEllipsisSize) / 2, startY + (float) style.bottomEllipsisSize / 2, (float) style.bottomEllipsisSize / 2, paint);
+      canvas.drawCircle(ellipsisStartX + (float) (signum * style.bottomEllipsisSize * 5) / 2, startY + (float) style.bottomEllipsisSize / 2, (float) style.bottomEllipsisSize / 2, paint);
+      canvas.drawCircle(ellipsisStartX + (float) (signum * style.bottomEllipsisSize * 9) / 2, startY + (float) style.bottomEllipsisSize / 2, (float) style.bottomEllipsisSize / 2, paint);
+    }
+    canvas.restore();
+  }
+
+  /**
+   * @return True if the View moved, resized, scrolled or changed state in a way that changes the decorations, since
+   * they were last drawn.
+   */
+  private boolean decorationStateChanged() {
+    int scrollX = field.getScrollX();
+    int scrollY = field.getScrollY();
+    int width = field.getWidth();
+    int height = field.getHeight();
+    int paddingBottom = field.getPaddingBottom();
+    int baseline = field.getBaseline();
+    int gravity = field.getGravity();
+    boolean focused = field.hasFocus();
+    boolean enabled = field.isEnabled();
+    boolean changed = scrollX != drawnScrollX || scrollY != drawnScrollY || width != drawnWidth || height != drawnHeight
+            || paddingBottom != drawnPaddingBottom || baseline != drawnBaseline || gravity != drawnGravity
+            || focused != drawnFocused || enabled != drawnEnabled;
+    drawnScrollX = scrollX;
+    drawnScrollY = scrollY;
+    drawnWidth = width;
+    drawnHeight = height;
+    drawnPaddingBottom = paddingBottom;
+    drawnBaseline = baseline;
+    drawnGravity = gravity;
+    drawnFocused = focused;
+    drawnEnabled = enabled;
+    return changed;
+  }
+
+  private void invalidateDecorations() {
+    if (decorationCache != null) decorationCache.invalidate();
+  }
+
+  /**
+   * Redraw the decorations. The field's own invalidations, e.g. the caret blinking, only replay them.
+   */
+  private void invalidate() {
+    invalidateDecorations();
+    field.invalidate();
+  }
+
+  private void postInvalidate() {
+    invalidateDecorations();
+    field.postInvalidate();
+  }
+
+  /**
+   * Redraw the given regions of the decorations, e.g. only the counter and the bottom text while typing.
+   * <p/>
+   * Only before API 28, and only on software and layered Views: hardware accelerated Views are redrawn as a whole, and
+   * from API 28 {@link View#invalidate(Rect)} ignores the dirty rectangle. The whole View is invalidated there, without
+   * computing the regions' bounds.
+   */
+  @SuppressWarnings("deprecation")
+  private void invalidate(int regions) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P || !unionRegionBounds(regions)) {
+      invalidate();
+      return;
+    }
+    invalidateDecorations();
+    field.invalidate(regionBounds.dirty);
+  }
+
+  private void postInvalidate(int regions) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P || !unionRegionBounds(regions)) {
+      postInvalidate();
+      return;
+    }
+    invalidateDecorations();
+    Rect dirty = regionBounds.dirty;
+    field.postInvalidate(dirty.left, dirty.top, dirty.right, dirty.bottom);
+  }
+
+  /**
+   * Set the dirty bounds of {@link #regionBounds} to the union of the given regions.
+   *
+   * @return False if the regions weren't drawn yet, so their bounds are unknown.
+   */
+  private boolean unionRegionBounds(int regions) {
+    if (regionBounds == null) return false;
+    Rect dirty = regionBounds.dirty;
+    dirty.setEmpty();
+    if ((regions & REGION_LABEL) != 0) dirty.union(regionBounds.label);
+    if ((regions & REGION_BOTTOM) != 0) dirty.union(regionBounds.bottom);
+    if ((regions & REGION_ICONS) != 0) {
+      dirty.union(regionBounds.iconLeft);
+      dirty.union(regionBounds.iconRight);
+    }
+    if ((regions & REGION_CLEAR_BUTTON) != 0) dirty.union(regionBounds.clearButton);
+    return true;
+  }
+
+  /**
+   * Lay out the regions the decorations may be drawn in, whatever their current state. Geometry changes invalidate the
+   * whole View, so they stay valid until the next draw.
+   */
+  private void updateRegionBounds(int startX, int endX, int lineStartY) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) return;
+    if (regionBounds == null) regionBounds = new RegionBounds();
+    int left = field.getScrollX();
+    int top = field.getScrollY();
+    int right = left + field.getWidth();
+    int bottom = top + field.getHeight();
+    // The label moves within the top padding, but its descent may reach below it
+    textPaint.setTextSize(floatingLabelTextSize);
+    regionBounds.label.set(left, top, right, top + field.getPaddingTop() + (int) Math.ceil(textPaint.descent()) + 1);
+    regionBounds.bottom.set(left, lineStartY, right, bottom);
+    int iconTop = lineStartY + style.bottomSpacing - style.iconOuterHeight;
+    regionBounds.iconLeft.set(left, iconTop, startX, iconTop + style.iconOuterHeight);
+    regionBounds.iconRight.set(endX, iconTop, right, iconTop + style.iconOuterHeight);
+    int buttonLeft = isRTL() ? startX : endX - style.iconOuterWidth;
+    regionBounds.clearButton.set(buttonLeft, top, buttonLeft + style.iconOuterWidth, bottom);
+  }
+
+  /**
+   * Bounds of the regions, in the scrolled coordinates of {@link View#invalidate(Rect)}.
+   */
+  private static final class RegionBounds {
+    final Rect label = new Rect();
+    final Rect bottom = new Rect();
+    final Rect iconLeft = new Rect();
+    final Rect iconRight = new Rect();
+    final Rect clearButton = new Rect();
+    /**
+     * Union of the regions being invalidated.
+     */
+    final Rect dirty = new Rect();
+  }
+
+  @Override
+  public void onAnimationUpdate(int property, float value) {
+    switch (property) {
+      case METAnimationDriver.FLOATING_LABEL_FRACTION:
+        setFloatingLabelFraction(value);
+        break;
+      case METAnimationDriver.FOCUS_FRACTION:
+        setFocusFraction(value);
+        break;
+      case METAnimationDriver.BOTTOM_LINES:
+        setCurrentBottomLines(value);
+        break;
+    }
+  }
+
+  @Override
+  public void onAnimationEnd(int property) {
+    // Release the collapsed space only once the bottom text is hidden
+    if (property == METAnimationDriver.BOTTOM_LINES && layoutBottomLines != currentBottomLines) {
+      layoutBottomLines = currentBottomLines;
+      initPadding();
+    }
+  }
+
+  /* ######## PRIVATE ######## */
+  /**
+   * Only used to draw the bottom line.
+   */
+  private boolean isInternalValid() {
+    return tempErrorText == null && charactersCountValid;
+  }
+
+  private Paint getDashedUnderlinePaint() {
+    if (dashedUnderlinePaint == null) {
+      // 1dp dashes every 3dp
+      float interval = getPixel(1);
+      dashedUnderlinePaint = new Paint();
+      dashedUnderlinePaint.setStyle(Paint.Style.STROKE);
+      dashedUnderlinePaint.setStrokeWidth(interval);
+      dashedUnderlinePaint.setPathEffect(new DashPathEffect(new float[]{interval, interval * 2}, 0));
+    }
+    return dashedUnderlinePaint;
+  }
+
+  private void updatePalette() {
+    palette = ColorPalette.obtain(baseColor, primaryColor, errorColor, underlineColor, floatingLabelTextColor, helperTextColor);
+  }
+
+  private boolean isRTL() {
+    Configuration config = field.getResources().getConfiguration();
+    return config.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+  }
+
+  private boolean hasCharactersCounter() {
+    return minCharacters > 0 || maxCharacters > 0;
+  }
+
+  private int getPixel(int dp) {
+    return Density.dp2px(field.getContext(), dp);
+  }
+
+  private int getButtonsCount() {
+    return showClearButton ? 1 : 0;
+  }
+
+  private void setSelection(int index) {
+    if (field instanceof EditText) ((EditText) field).setSelection(index);
+  }
+
+  /**
+   * Set the text without showing the completions of an auto-complete field.
+   */
+  private void setTextWithoutFiltering(CharSequence text) {
+    if (field instanceof AutoCompleteTextView) {
+      ((AutoCompleteTextView) field).setText(text, false);
+    } else {
+      field.setText(text);
+    }
+  }
+
+  private void animateFloatingLabel(float fraction) {
+    if (batchDepth > 0) {
+      METAnimationDriver.cancel(this, METAnimationDriver.FLOATING_LABEL_FRACTION);
+      floatingLabelFraction = fraction;
+      return;
+    }
+    long duration = floatingLabelAnimating ? (long) (METAnimationDriver.DEFAULT_DURATION * Math.abs(fraction - floatingLabelFraction)) : 0;
+    METAnimationDriver.animate(field.getContext(), this, METAnimationDriver.FLOATING_LABEL_FRACTION, floatingLabelFraction, fraction, duration);
+  }
+
+  private void animateFocusFraction(float fraction) {
+    if (batchDepth > 0) {
+      METAnimationDriver.cancel(this, METAnimationDriver.FOCUS_FRACTION);
+      focusFraction = fraction;
+      return;
+    }
+    long duration = (long) (METAnimationDriver.DEFAULT_DURATION * Math.abs(fraction - focusFraction));
+    METAnimationDriver.animate(field.getContext(), this, METAnimationDriver.FOCUS_FRACTION, focusFraction, fraction, duration);
+  }
+
+  private void animateBottomLines(float destBottomLines) {
+    if (!animateBottomLinesLayout && destBottomLines > layoutBottomLines) {
+      // Reserve the extended space up front, the frames only reveal the bottom text
+      layoutBottomLines = destBottomLines;
+      initPadding();
+    }
+    METAnimationDriver.animate(field.getContext(), this, METAnimationDriver.BOTTOM_LINES, currentBottomLines, destBottomLines, batchDepth > 0 ? 0 : METAnimationDriver.DEFAULT_DURATION);
+  }
+
+  private int getBottomTextLeftOffset() {
+    return isRTL() ? getCharactersCounterWidth() : getBottomEllipsisWidth();
+  }
+
+  private int getBottomTextRightOffset() {
+    return isRTL() ? getBottomEllipsisWidth() : getCharactersCounterWidth();
+  }
+
+  private int getCharactersCounterWidth() {
+    return hasCharactersCounter() ? (int) textPaint.measureText(getCharactersCounterText()) : 0;
+  }
+
+  private int getBottomEllipsisWidth() {
+    return singleLineEllipsis ? (style.bottomEllipsisSize * 5 + getPixel(4)) : 0;
+  }
+
+  private String getCharactersCounterText() {
+    CharSequence fieldText = field.getText();
+    String text;
+    if (minCharacters <= 0) {
+      text = isRTL() ? maxCharacters + " / " + checkLength(fieldText) : checkLength(fieldText) + " / " + maxCharacters;
+    } else if (maxCharacters <= 0) {
+      text = isRTL() ? "+" + minCharacters + " / " + checkLength(fieldText) : checkLength(fieldText) + " / " + minCharacters + "+";
+    } else {
+      text = isRTL() ? maxCharacters + "-" + minCharacters + " / " + checkLength(fieldText) : checkLength(fieldText) + " / " + minCharacters + "-" + maxCharacters;
+    }
+    return text;
+  }
+
+  private void checkCharactersCount() {
+    if ((!firstShown && !style.checkCharactersCountAtBeginning) || !hasCharactersCounter()) {
+      charactersCountValid = true;
+    } else {
+      CharSequence text = field.getText();
+      int count = text == null ? 0 : checkLength(text);
+      charactersCountValid = (count >= minCharacters && (maxCharacters <= 0 || count <= maxCharacters));
+    }
+  }
+
+  private int checkLength(CharSequence text) {
+    return lengthCounter.getLength(text);
+  }
+
+  private void setFloatingLabelInternal(int mode) {
+    switch (mode) {
+      case FLOATING_LABEL_NORMAL:
+        floatingLabelEnabled = true;
+        highlightFloatingLabel = false;
+        break;
+      case FLOATING_LABEL_HIGHLIGHT:
+        floatingLabelEnabled = true;
+        highlightFloatingLabel = true;
+        break;
+      default:
+        floatingLabelEnabled = false;
+        highlightFloatingLabel = false;
+        break;
+    }
+  }
+
+  /**
+   * Set paddings to the correct values
+   */
+  private void correctPaddings() {
+    // The icons and the clear button move with the paddings
+    invalidateDecorations();
+    int buttonsWidthLeft = 0, buttonsWidthRight = 0;
+
+    boolean clearButtonVisible = field.hasFocus() && showClearButton && !TextUtils.isEmpty(field.getText());
+    int buttonsWidth = clearButtonVisible ? style.iconOuterWidth * getButtonsCount() : 0;
+
+    if (isRTL()) {
+      buttonsWidthLeft = buttonsWidth;
+    } else {
+      buttonsWidthRight = buttonsWidth;
+    }
+    field.setPadding(innerPaddingLeft + extraPaddingLeft + buttonsWidthLeft, innerPaddingTop + extraPaddingTop, innerPaddingRight + extraPaddingRight + buttonsWidthRight, innerPaddingBottom + extraPaddingBottom);
+  }
+
+  /**
+   * Obtain the icons given as resources, unless they are cached decoded in the background. The paddings already make
+   * room for them, they are drawn once ready.
+   */
+  private void loadIcons() {
+    if (iconLeftBitmap == null) iconLeftBitmap = IconCache.obtainAsync(field.getContext(), iconLeftRes, style.iconSize, this::onIconReady);
+    if (iconRightBitmap == null) iconRightBitmap = IconCache.obtainAsync(field.getContext(), iconRightRes, style.iconSize, this::onIconReady);
+  }
+
+  private void onIconReady(@DrawableRes int res, @NonNull Bitmap icon) {
+    // Detached fields don't hold their icons, they are obtained again once reattached
+    if (!field.isAttachedToWindow()) return;
+    boolean ready = false;
+    if (iconLeftBitmap == null && iconLeftRes == res) {
+      iconLeftBitmap = icon;
+      ready = true;
+    }
+    if (iconRightBitmap == null && iconRightRes == res) {
+      iconRightBitmap = icon;
+      ready = true;
+    }
+    if (ready) invalidate(REGION_ICONS);
+  }
+
+  /**
+   * @return Whether the field shows a left icon, even if it's dropped while detached.
+   */
+  private boolean hasIconLeft() {
+    return iconLeftBitmap != null || iconLeftRes != -1;
+  }
+
+  private boolean hasIconRight() {
+    return iconRightBitmap != null || iconRightRes != -1;
+  }
+
+  private Bitmap generateIcon(Drawable drawable) {
+    if (drawable == null) return null;
+    return METStyle.rasterizeIcon(drawable, style.iconSize);
+  }
+
+  /**
+   * @return The icon scaled to {@link METStyle#iconSize}, untinted: the palette's color filters tint it while drawing, so it
+   * follows the color changes.
+   */
+  private Bitmap generateIcon(Bitmap origin) {
+    if (origin == null) return null;
+    return METStyle.scaleIcon(origin, style.iconSize);
+  }
+
+  /**
+   * Unlike the decoded ones, the given bitmaps belong to the caller, who may recycle them.
+   */
+  private Bitmap generateIconCopy(Bitmap origin) {
+    Bitmap icon = generateIcon(origin);
+    return icon == null || icon != origin ? icon : origin.copy(Bitmap.Config.ARGB_8888, false);
+  }
+
+  /**
+   * Lay out the bottom text, if any.
+   *
+   * @return The bottom lines count needed.
+   */
+  private int getBottomLines() {
+    int destBottomLines;
+    if (field.getWidth() != 0 && (tempErrorText != null || helperText != null)) {
+      Layout.Alignment alignment = (field.getGravity() & Gravity.END) == Gravity.END || isRTL() ?
+              Layout.Alignment.ALIGN_OPPOSITE : (field.getGravity() & Gravity.START) == Gravity.START ?
+              Layout.Alignment.ALIGN_NORMAL : Layout.Alignment.ALIGN_CENTER;
+      int bottomLeftOffset = showBottomEllipsis ? getBottomTextLeftOffset() : getPixel(8);
+      textLayoutCounterWidth = getCharactersCounterWidth();
+      textLayout = new StaticLayout(tempErrorText != null ? tempErrorText : helperText, textPaint,
+              field.getWidth() - bottomLeftOffset - getBottomTextRightOffset() - field.getPaddingLeft(),
+              alignment, 1.0f, 0.0f, true);
+      destBottomLines = Math.max(textLayout.getLineCount(), minBottomTextLines);
+    } else {
+      destBottomLines = minBottomLines;
+    }
+    return destBottomLines;
+  }
+
+  /**
+   * Lay out the bottom text again after a setter changed its size or width, once the batch ends if inside one.
+   */
+  private void layOutBottomText() {
+    if (batchDepth == 0) adjustBottomLines();
+  }
+
+  /**
+   * @return Whether the bottom text was laid out beside a counter of another width.
+   */
+  private boolean counterWidthChanged() {
+    if (textLayout == null) return false;
+    textPaint.setTextSize(bottomTextSize);
+    return getCharactersCounterWidth() != textLayoutCounterWidth;
+  }
+
+  /**
+   * Lay out the bottom text again, after a change of its text, size, typeface or available width.
+   *
+   * @return True, if adjustments were made that require the view to be invalidated.
+   */
+  private boolean adjustBottomLines() {
+    // Bail out if we have a zero width; lines will be adjusted during next layout.
+    if (field.getWidth() == 0) return false;
+
+    textPaint.setTextSize(bottomTextSize);
+    int destBottomLines = getBottomLines();
+    if (bottomLines != destBottomLines) animateBottomLines(destBottomLines);
+    bottomLines = destBottomLines;
+    return true;
+  }
+
+  private void resetTextColor() {
+    // Left null unless given, so the default colors follow the base color
+    field.setTextColor(textColorStateList == null ? palette.text : textColorStateList);
+  }
+
+  private void resetHintTextColor() {
+    if (textColorHintStateList == null) {
+      field.setHintTextColor(palette.hint);
+    } else {
+      field.setHintTextColor(textColorHintStateList);
+    }
+  }
+
+  private boolean insideClearButton(MotionEvent event) {
+    float x = event.getX();
+    float y = event.getY();
+    int startX = !hasIconLeft() ? 0 : (style.iconOuterWidth + style.iconPadding);
+    int endX = !hasIconRight() ? field.getWidth() : field.getWidth() - style.iconOuterWidth - style.iconPadding;
+    int buttonLeft = isRTL() ? startX : endX - style.iconOuterWidth;
+    int buttonTop = field.getScrollY() + field.getHeight() - field.getPaddingBottom() + (style.bottomSpacing / 2) - style.iconOuterHeight;
+    return x >= buttonLeft && x < buttonLeft + style.iconOuterWidth && y >= buttonTop && y < buttonTop + style.iconOuterHeight;
+  }
+
+}
@@ -0,0 +1,237 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Icons decoded from resources, shared by the fields showing the same icon at the same size with the same theme and
+ * configuration: vector icons may take their colors from theme attributes, resolved for the night mode.
+ * <p/>
+ * Fields only hold the icons they decoded from resources while attached: detached ones, e.g. in a fragment on the back
+ * stack, drop them and obtain them from here again once reattached. Icons are never recycled, other fields or a
+ * {@link METStyle} may still show them. The cache is emptied when memory runs low, the app is hidden or the
+ * configuration changes, so that the icons no field shows anymore can be collected.
+ * <p/>
+ * Fields obtain their icons with {@link #obtainAsync(Context, int, int, Callback)}: the icons are decoded on a
+ * background thread, so inflating a form full of icons doesn't wait for them, even when it is inflated off the main
+ * thread.
+ */
+final class IconCache {
+
+  /**
+   * Bytes of icons kept, about 16 icons of 32dp on xxxhdpi screens.
+   */
+  private static final int MAX_SIZE = 1024 * 1024;
+
+  private static final LruCache<Key, Bitmap> cache = new LruCache<Key, Bitmap>(MAX_SIZE) {
+    @Override
+    protected int sizeOf(Key key, Bitmap icon) {
+      return icon.getAllocationByteCount();
+    }
+  };
+
+  private static final ComponentCallbacks2 callbacks = new ComponentCallbacks2() {
+    @Override
+    public void onTrimMemory(int level) {
+      trim(level);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+      // Decoded or resolved for the previous density or night mode
+      cache.evictAll();
+      METStyle.clearCache();
+    }
+
+    @Override
+    public void onLowMemory() {
+      trim(TRIM_MEMORY_COMPLETE);
+    }
+  };
+
+  private static boolean callbacksRegistered;
+
+  private static final Executor executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "MET icon decoder");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /**
+   * Callbacks waiting for the icons being decoded, per key. Only used on the main thread.
+   */
+  private static final HashMap<Key, List<Callback>> pending = new HashMap<>();
+
+  /**
+   * Ids of the themes and configurations icons were decoded with, not keeping the themes. The icons of a collected theme
+   * age out of the cache.
+   */
+  private static final ThemeCache<Integer> themeIds = new ThemeCache<>();
+  private static int nextThemeId = 1;
+
+  private IconCache() {
+  }
+
+  /**
+   * @return The icon, decoded and scaled to {@code iconSize} unless it is cached, or null if {@code res} is -1.
+   */
+  @Nullable
+  static Bitmap obtain(@NonNull Context context, @DrawableRes int res, int iconSize) {
+    if (res == -1) return null;
+    registerCallbacks(context);
+    Key key = new Key(context, res, iconSize);
+    Bitmap icon = cache.get(key);
+    if (icon == null) {
+      icon = METStyle.decodeIcon(context.getResources(), context.getTheme(), res, iconSize);
+      if (icon != null) cache.put(key, icon);
+    }
+    return icon;
+  }
+
+  /**
+   * @return The icon if it is cached. Otherwise null: it is decoded in the background and given to the callback on the
+   * main thread, unless it can't be decoded.
+   */
+  @Nullable
+  static Bitmap obtainAsync(@NonNull Context context, @DrawableRes int res, int iconSize, @NonNull Callback callback) {
+    if (res == -1) return null;
+    registerCallbacks(context);
+    Key key = new Key(context, res, iconSize);
+    Bitmap icon = cache.get(key);
+    if (icon != null) return icon;
+
+    if (Looper.myLooper() == Looper.getMainLooper()) {
+      decode(context, key, callback);
+    } else {
+      // Inflated off the main thread, the pending callbacks are only used on the main thread
+      mainHandler.post(() -> {
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+          callback.onIconReady(res, cached);
+        } else {
+          decode(context, key, callback);
+        }
+      });
+    }
+    return null;
+  }
+
+  /**
+   * Decode the icon in the background, unless it is already being decoded. Must be called on the main thread.
+   */
+  private static void decode(@NonNull Context context, @NonNull Key key, @NonNull Callback callback) {
+    List<Callback> callbacks = pending.get(key);
+    if (callbacks != null) {
+      // Already being decoded for another field
+      callbacks.add(callback);
+      return;
+    }
+    callbacks = new ArrayList<>();
+    callbacks.add(callback);
+    pending.put(key, callbacks);
+    Resources resources = context.getResources();
+    Resources.Theme theme = context.getTheme();
+    executor.execute(() -> {
+      Bitmap decoded = METStyle.decodeIcon(resources, theme, key.res, key.iconSize);
+      if (decoded != null) decoded.prepareToDraw();
+      mainHandler.post(() -> {
+        if (decoded != null) cache.put(key, decoded);
+        List<Callback> waiting = pending.remove(key);
+        if (decoded == null || waiting == null) return;
+        for (Callback waitingCallback : waiting) {
+          waitingCallback.onIconReady(key.res, decoded);
+        }
+      });
+    });
+  }
+
+  /**
+   * @return The icon if it is cached for the given context's theme, null otherwise.
+   */
+  @Nullable
+  static Bitmap get(@NonNull Context context, @DrawableRes int res, int iconSize) {
+    return cache.get(new Key(context, res, iconSize));
+  }
+
+  private static int themeId(@NonNull Context context) {
+    synchronized (themeIds) {
+      Integer id = themeIds.get(context);
+      if (id == null) {
+        id = nextThemeId++;
+        themeIds.put(context, id);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Release the shared caches, as much as the given {@link ComponentCallbacks2} trim level asks for.
+   */
+  static void trim(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) cache.evictAll();
+    // Resolved again from the theme by the next field created, the shown fields keep theirs
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) METStyle.clearCache();
+  }
+
+  interface Callback {
+    void onIconReady(@DrawableRes int res, @NonNull Bitmap icon);
+  }
+
+  /**
+   * An icon resource decoded at a size with a theme, under a configuration.
+   */
+  private static final class Key {
+    final int res;
+    final int iconSize;
+    final int themeId;
+
+    Key(@NonNull Context context, @DrawableRes int res, int iconSize) {
+      this.res = res;
+      this.iconSize = iconSize;
+      this.themeId = themeId(context);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return res == that.res && iconSize == that.iconSize && themeId == that.themeId;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = res;
+      result = 31 * result + iconSize;
+      result = 31 * result + themeId;
+      return result;
+    }
+  }
+
+  static synchronized void registerCallbacks(@NonNull Context context) {
+    if (callbacksRegistered) return;
+    Context application = context.getApplicationContext();
+    // None in the layout editor
+    if (application == null) return;
+    application.registerComponentCallbacks(callbacks);
+    callbacksRegistered = true;
+  }
+
+}
@@ -0,0 +1,105 @@
+package com.rengwuxian.materialedittext;
+
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.rengwuxian.materialedittext.validation.METIncrementalLengthChecker;
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+
+/**
+ * Caches the length of a field's text, as measured by its {@link METLengthChecker}, until the text changes.
+ * <p/>
+ * With a {@link METIncrementalLengthChecker}, edits are applied as deltas: only the replaced and the inserted ranges
+ * are measured.
+ */
+final class LengthCounter implements TextWatcher {
+
+  private final View field;
+  private METLengthChecker lengthChecker;
+  private boolean lengthValid;
+  private int length;
+
+  /**
+   * Start of the range being replaced, -1 if the pending edit can't be applied incrementally.
+   */
+  private int editStart = -1;
+
+  /**
+   * Count of unchanged chars after the range being replaced.
+   */
+  private int editTail;
+
+  LengthCounter(@NonNull View field) {
+    this.field = field;
+  }
+
+  void setLengthChecker(@Nullable METLengthChecker lengthChecker) {
+    this.lengthChecker = lengthChecker;
+    lengthValid = false;
+  }
+
+  @Nullable
+  METLengthChecker getLengthChecker() {
+    return lengthChecker;
+  }
+
+  /**
+   * @param text The field's current text.
+   */
+  int getLength(@Nullable CharSequence text) {
+    if (!lengthValid) {
+      if (text == null) {
+        length = 0;
+      } else if (lengthChecker == null) {
+        length = text.length();
+      } else {
+        length = Callbacks.getLength(field, lengthChecker, text);
+      }
+      lengthValid = true;
+    }
+    return length;
+  }
+
+  @Override
+  public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    editStart = -1;
+    if (!lengthValid || !(lengthChecker instanceof METIncrementalLengthChecker)) {
+      lengthValid = false;
+      return;
+    }
+    METIncrementalLengthChecker checker = (METIncrementalLengthChecker) lengthChecker;
+    int from = checker.getBoundaryBefore(s, start);
+    int to = checker.getBoundaryAfter(s, start + count);
+    length -= Callbacks.getLength(field, checker, s, from, to);
+    editStart = from;
+    editTail = s.length() - to;
+  }
+
+  @Override
+  public void onTextChanged(CharSequence s, int start, int before, int count) {
+    if (editStart < 0) {
+      lengthValid = false;
+      return;
+    }
+    METIncrementalLengthChecker checker = (METIncrementalLengthChecker) lengthChecker;
+    int from = editStart;
+    int to = s.length() - editTail;
+    editStart = -1;
+    // The edit may have merged units across the old boundaries, fall back to a full count then
+    if (from > to || checker.getBoundaryBefore(s, from) != from || checker.getBoundaryAfter(s, to) != to) {
+      lengthValid = false;
+      return;
+    }
+    length += Callbacks.getLength(field, checker, s, from, to);
+  }
+
+  @Override
+  public void afterTextChanged(Editable s) {
+    // Not used
+  }
+
+}
@@ -0,0 +1,265 @@
+package com.rengwuxian.materialedittext;
+
+import android.animation.ValueAnimator;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.provider.Settings;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide driver of the floating label, focus and bottom lines transitions of all the fields.
+ * <p/>
+ * All the running transitions are ticked from a single {@link Choreographer} frame callback, instead of one animator
+ * per field and property. Transitions are pooled, so starting one does not allocate once the pool is warm.
+ * <p/>
+ * Durations follow the system animator duration scale. Transitions jump to their end value, without scheduling any
+ * frame, while the scale is 0 (developer options, or "Remove animations" in the accessibility settings), while the
+ * device is in battery saver mode and while disabled with {@link #setAnimationsEnabled(boolean)}.
+ * <p/>
+ * Main thread only: transitions requested from another thread jump to their end value.
+ */
+public final class METAnimationDriver {
+
+  static final int FLOATING_LABEL_FRACTION = 0;
+  static final int FOCUS_FRACTION = 1;
+  static final int BOTTOM_LINES = 2;
+
+  /**
+   * Duration of a complete transition, same as {@link android.animation.ValueAnimator}'s default.
+   */
+  static final long DEFAULT_DURATION = 300;
+
+  interface Target {
+    void onAnimationUpdate(int property, float value);
+
+    /**
+     * Called when a transition reaches its end value, not when it is canceled or replaced.
+     */
+    void onAnimationEnd(int property);
+  }
+
+  private static final class Transition {
+    Target target;
+    int property;
+    float from;
+    float to;
+    long durationNanos;
+    long startNanos;
+  }
+
+  private static final ArrayList<Transition> transitions = new ArrayList<>();
+  private static final ArrayList<Transition> pool = new ArrayList<>();
+  private static final Choreographer.FrameCallback frameCallback = METAnimationDriver::doFrame;
+  private static Transition[] frameTransitions = new Transition[8];
+  private static boolean scheduled;
+  private static boolean animationsEnabled = true;
+  private static boolean observing;
+  private static boolean powerSaveMode;
+  private static float legacyDurationScale = 1f;
+
+  private METAnimationDriver() {
+  }
+
+  /**
+   * Enable or disable the transitions of all the fields, e.g. for an in-app reduced motion setting or for UI tests.
+   * Enabled by default, the system settings still apply.
+   */
+  public static void setAnimationsEnabled(boolean enabled) {
+    animationsEnabled = enabled;
+  }
+
+  /**
+   * @return Whether the transitions are currently animated, according to {@link #setAnimationsEnabled(boolean)}, the
+   * animator duration scale and battery saver mode.
+   */
+  public static boolean areAnimationsEnabled(@NonNull Context context) {
+    return getDurationScale(context) > 0;
+  }
+
+  /**
+   * @return The count of transitions currently running, for diagnostics.
+   */
+  public static int getActiveAnimationCount() {
+    return isMainThread() ? transitions.size() : 0;
+  }
+
+  /**
+   * Start a transition of the target's property, replacing any running one.
+   *
+   * @param durationMillis Duration of the transition. The value is set right away if 0.
+   */
+  static void animate(@NonNull Context context, @NonNull Target target, int property, float from, float to, long durationMillis) {
+    if (!isMainThread()) {
+      target.onAnimationUpdate(property, to);
+      target.onAnimationEnd(property);
+      return;
+    }
+    Transition transition = find(target, property);
+    float durationScale = durationMillis > 0 && from != to ? getDurationScale(context) : 0;
+    if (durationScale <= 0) {
+      if (transition != null) recycle(transition);
+      target.onAnimationUpdate(property, to);
+      target.onAnimationEnd(property);
+      return;
+    }
+    if (transition == null) {
+      transition = pool.isEmpty() ? new Transition() : pool.remove(pool.size() - 1);
+      transitions.add(transition);
+    }
+    transition.target = target;
+    transition.property = property;
+    transition.from = from;
+    transition.to = to;
+    transition.durationNanos = Math.max(1, (long) (durationMillis * durationScale * 1000000L));
+    transition.startNanos = -1; // Starts on the next frame
+    target.onAnimationUpdate(property, from);
+    if (!scheduled) {
+      scheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  /**
+   * Stop the transition of the target's property, if any, leaving the property at its current value.
+   */
+  static void cancel(@NonNull Target target, int property) {
+    if (!isMainThread()) return;
+    Transition transition = find(target, property);
+    if (transition != null) recycle(transition);
+  }
+
+  /**
+   * Stop all the transitions of the target.
+   */
+  static void cancelAll(@NonNull Target target) {
+    if (!isMainThread()) return;
+    for (int i = transitions.size() - 1; i >= 0; i--) {
+      if (transitions.get(i).target == target) recycle(transitions.get(i));
+    }
+  }
+
+  /**
+   * Jump all the transitions of the target to their end value, so nothing keeps referencing it.
+   */
+  static void endAll(@NonNull Target target) {
+    if (!isMainThread()) return;
+    for (int i = transitions.size() - 1; i >= 0; i--) {
+      if (i >= transitions.size()) continue; // The end callbacks may have canceled transitions
+      Transition transition = transitions.get(i);
+      if (transition.target != target) continue;
+      int property = transition.property;
+      float to = transition.to;
+      recycle(transition);
+      target.onAnimationUpdate(property, to);
+      target.onAnimationEnd(property);
+    }
+  }
+
+  static boolean isRunning(@NonNull Target target, int property) {
+    return isMainThread() && find(target, property) != null;
+  }
+
+  private static void doFrame(long frameTimeNanos) {
+    scheduled = false;
+    // Snapshot, the callbacks may start or cancel transitions
+    int count = transitions.size();
+    if (frameTransitions.length < count) frameTransitions = new Transition[Math.max(count, frameTransitions.length * 2)];
+    transitions.toArray(frameTransitions);
+    boolean snap = getDurationScale() <= 0; // Settings changed since the transitions started
+    for (int i = 0; i < count; i++) {
+      Transition transition = frameTransitions[i];
+      frameTransitions[i] = null;
+      if (transition.target == null) continue; // Canceled by a previous callback
+
+      if (transition.startNanos < 0) transition.startNanos = frameTimeNanos;
+      float fraction = snap ? 1f : Math.min(1f, (float) (frameTimeNanos - transition.startNanos) / transition.durationNanos);
+      Target target = transition.target;
+      int property = transition.property;
+      if (fraction >= 1f) {
+        float to = transition.to;
+        recycle(transition);
+        target.onAnimationUpdate(property, to);
+        target.onAnimationEnd(property);
+      } else {
+        // AccelerateDecelerateInterpolator, ValueAnimator's default
+        float interpolated = (float) (Math.cos((fraction + 1) * Math.PI) / 2) + 0.5f;
+        target.onAnimationUpdate(property, transition.from + (transition.to - transition.from) * interpolated);
+      }
+    }
+    if (!transitions.isEmpty() && !scheduled) {
+      scheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  private static Transition find(@NonNull Target target, int property) {
+    for (int i = 0; i < transitions.size(); i++) {
+      Transition transition = transitions.get(i);
+      if (transition.target == target && transition.property == property) return transition;
+    }
+    return null;
+  }
+
+  private static void recycle(@NonNull Transition transition) {
+    transitions.remove(transition);
+    transition.target = null;
+    pool.add(transition);
+  }
+
+  private static float getDurationScale(@NonNull Context context) {
+    if (!animationsEnabled) return 0;
+    if (!observing) observe(context.getApplicationContext());
+    return getDurationScale();
+  }
+
+  private static float getDurationScale() {
+    if (!animationsEnabled || powerSaveMode) return 0;
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ? ValueAnimator.getDurationScale() : legacyDurationScale;
+  }
+
+  /**
+   * Keep the settings up to date from their change notifications, so reading them does not cost a binder call.
+   */
+  private static void observe(@NonNull Context context) {
+    observing = true;
+    PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    if (powerManager != null) {
+      powerSaveMode = powerManager.isPowerSaveMode();
+      context.registerReceiver(new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+          powerSaveMode = powerManager.isPowerSaveMode();
+        }
+      }, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+    }
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+      // ValueAnimator's scale is only public from Oreo
+      ContentResolver resolver = context.getContentResolver();
+      legacyDurationScale = Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+      resolver.registerContentObserver(Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE), false,
+          new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+              legacyDurationScale = Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+            }
+          });
+    }
+  }
+
+  private static boolean isMainThread() {
+    return Looper.getMainLooper().isCurrentThread();
+  }
+
+}
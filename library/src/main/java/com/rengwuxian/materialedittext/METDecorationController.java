@@ -0,0 +1,259 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.res.ColorStateList;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+/**
+ * Gives the Material look to any {@link TextView}, e.g. a plain {@code AppCompatEditText} or a
+ * {@code TextInputEditText}, without subclassing it.
+ * <p/>
+ * The decorations are drawn by a {@link METDecorationDrawable} installed as the background, so they are invalidated
+ * with the View but don't need an {@code onDraw} override. The controller owns the View's paddings, its focus change
+ * listener and its touch listener: use {@link #setPaddings(int, int, int, int)} and
+ * {@link #setOnFocusChangeListener(View.OnFocusChangeListener)} instead of the View's own methods.
+ */
+@SuppressWarnings({"unused"})
+public class METDecorationController implements BatchUpdatable {
+
+  private final TextView field;
+  private final FieldEngine engine;
+  private final METDecorationDrawable drawable;
+
+  private final View.OnAttachStateChangeListener attachListener = new View.OnAttachStateChangeListener() {
+    @Override
+    public void onViewAttachedToWindow(View v) {
+      engine.onAttachedToWindow();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+      engine.onDetachedFromWindow();
+    }
+  };
+
+  private final View.OnLayoutChangeListener layoutListener = new View.OnLayoutChangeListener() {
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+      engine.onLayout(right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop);
+    }
+  };
+
+  private final View.OnTouchListener touchListener = new View.OnTouchListener() {
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+      return engine.onBottomEllipsisTouchEvent(event) || engine.onClearButtonTouchEvent(event);
+    }
+  };
+
+  private METDecorationController(@NonNull TextView field) {
+    this.field = field;
+    // The View's paddings become the inner paddings, around which the decorations make room
+    int left = field.getPaddingLeft();
+    int top = field.getPaddingTop();
+    int right = field.getPaddingRight();
+    int bottom = field.getPaddingBottom();
+    engine = new FieldEngine(field, field.getContext(), null);
+    engine.setPaddings(left, top, right, bottom);
+    drawable = new METDecorationDrawable(field, engine);
+    field.setBackground(drawable);
+    field.addOnAttachStateChangeListener(attachListener);
+    field.addOnLayoutChangeListener(layoutListener);
+    field.setOnTouchListener(touchListener);
+    if (field.isAttachedToWindow()) engine.onAttachedToWindow();
+    engine.onLayout(true);
+  }
+
+  /**
+   * Decorate the given View, with the default style of the library.
+   */
+  @NonNull
+  public static METDecorationController attach(@NonNull TextView field) {
+    return new METDecorationController(field);
+  }
+
+  /**
+   * Stop decorating the View. Its paddings are left as they are.
+   */
+  public void detach() {
+    engine.release();
+    field.removeOnAttachStateChangeListener(attachListener);
+    field.removeOnLayoutChangeListener(layoutListener);
+    field.setOnTouchListener(null);
+    if (field.getBackground() == drawable) field.setBackground(null);
+  }
+
+  @NonNull
+  public TextView getField() {
+    return field;
+  }
+
+  @NonNull
+  public METDecorationDrawable getDrawable() {
+    return drawable;
+  }
+
+  public void setFloatingLabel(@MaterialEditText.FloatingLabelType int mode) {
+    engine.setFloatingLabel(mode);
+  }
+
+  /**
+   * Set the floating label text.
+   * <p/>
+   * Pass null to force fallback to use hint's value.
+   */
+  public void setFloatingLabelText(@Nullable CharSequence floatingLabelText) {
+    engine.setFloatingLabelText(floatingLabelText);
+  }
+
+  public void setFloatingLabelAlwaysShown(boolean floatingLabelAlwaysShown) {
+    engine.setFloatingLabelAlwaysShown(floatingLabelAlwaysShown);
+  }
+
+  public void setHelperText(@Nullable CharSequence helperText) {
+    engine.setHelperText(helperText);
+  }
+
+  public void setHelperTextAlwaysShown(boolean helperTextAlwaysShown) {
+    engine.setHelperTextAlwaysShown(helperTextAlwaysShown);
+  }
+
+  public void setError(@Nullable CharSequence errorText) {
+    engine.setError(errorText);
+  }
+
+  @Nullable
+  public CharSequence getError() {
+    return engine.getError();
+  }
+
+  public void setMinCharacters(int min) {
+    engine.setMinCharacters(min);
+  }
+
+  public void setMaxCharacters(int max) {
+    engine.setMaxCharacters(max);
+  }
+
+  public void setSingleLineEllipsis(boolean enabled) {
+    engine.setSingleLineEllipsis(enabled);
+  }
+
+  public void setBaseColor(int color) {
+    engine.setBaseColor(color);
+  }
+
+  public void setPrimaryColor(int color) {
+    engine.setPrimaryColor(color);
+  }
+
+  /**
+   * See {@link MaterialEditText#setMetTheme(METTheme)}.
+   */
+  public void setMetTheme(@Nullable METTheme theme) {
+    engine.setTheme(theme);
+  }
+
+  public void setErrorColor(int color) {
+    engine.setErrorColor(color);
+  }
+
+  public void setMetTextColor(ColorStateList colors) {
+    engine.setMetTextColor(colors);
+  }
+
+  public void setMetHintTextColor(ColorStateList colors) {
+    engine.setMetHintTextColor(colors);
+  }
+
+  public void setUnderlineColor(int color) {
+    engine.setUnderlineColor(color);
+  }
+
+  public void setHideUnderline(boolean hideUnderline) {
+    engine.setHideUnderline(hideUnderline);
+  }
+
+  public void setIconLeft(@DrawableRes int res) {
+    engine.setIconLeft(res);
+  }
+
+  public void setIconRight(@DrawableRes int res) {
+    engine.setIconRight(res);
+  }
+
+  public void setShowClearButton(boolean show) {
+    engine.setShowClearButton(show);
+  }
+
+  /**
+   * Set the inner paddings of the View, the decorations are laid out around them.
+   */
+  public void setPaddings(int left, int top, int right, int bottom) {
+    engine.setPaddings(left, top, right, bottom);
+  }
+
+  /**
+   * Set the listener to notify of the View's focus changes, after the decorations are updated.
+   */
+  public void setOnFocusChangeListener(@Nullable View.OnFocusChangeListener listener) {
+    if (!engine.setOnFocusChangeListener(listener)) field.setOnFocusChangeListener(listener);
+  }
+
+  public void setAutoValidate(boolean autoValidate) {
+    engine.setAutoValidate(autoValidate);
+  }
+
+  public void setValidateOnFocusLost(boolean validate) {
+    engine.setValidateOnFocusLost(validate);
+  }
+
+  /**
+   * Adds a new validator to the View's list of validators.
+   *
+   * @return This instance, for easy chaining.
+   */
+  public METDecorationController addValidator(@NonNull METValidator validator) {
+    engine.addValidator(validator);
+    return this;
+  }
+
+  public void clearValidators() {
+    engine.clearValidators();
+  }
+
+  /**
+   * Check all validators, sets the error text if not.
+   *
+   * @return True if all validators pass, false if not.
+   */
+  public boolean validate() {
+    return engine.validate();
+  }
+
+  public void setLengthChecker(@Nullable METLengthChecker lengthChecker) {
+    engine.setLengthChecker(lengthChecker);
+  }
+
+  /**
+   * See {@link MaterialEditText#beginBatchUpdate()}.
+   */
+  @Override
+  public void beginBatchUpdate() {
+    engine.beginBatchUpdate();
+  }
+
+  @Override
+  public void endBatchUpdate() {
+    engine.endBatchUpdate();
+  }
+
+}
@@ -0,0 +1,63 @@
+package com.rengwuxian.materialedittext;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Background drawing the Material decorations of a field: underline, floating label, helper/error text, characters
+ * counter, bottom ellipsis, icons and clear button.
+ * <p/>
+ * Created and installed by {@link METDecorationController#attach(TextView)}, which keeps it in sync with the field.
+ */
+public class METDecorationDrawable extends Drawable {
+
+  private final TextView field;
+  private final FieldEngine engine;
+
+  METDecorationDrawable(@NonNull TextView field, @NonNull FieldEngine engine) {
+    this.field = field;
+    this.engine = engine;
+  }
+
+  @Override
+  public void draw(@NonNull Canvas canvas) {
+    // Backgrounds don't scroll with the text, the decorations are laid out in the scrolled coordinates
+    canvas.save();
+    canvas.translate(-field.getScrollX(), -field.getScrollY());
+    engine.draw(canvas);
+    canvas.restore();
+  }
+
+  @Override
+  public boolean isStateful() {
+    return true;
+  }
+
+  @Override
+  protected boolean onStateChange(int[] state) {
+    // Focused, enabled and error states all change the decorations
+    return true;
+  }
+
+  @Override
+  public void setAlpha(int alpha) {
+    // The decorations have their own alphas
+  }
+
+  @Override
+  public void setColorFilter(@Nullable ColorFilter colorFilter) {
+    // The decorations have their own colors
+  }
+
+  @Override
+  public int getOpacity() {
+    return PixelFormat.TRANSLUCENT;
+  }
+
+}
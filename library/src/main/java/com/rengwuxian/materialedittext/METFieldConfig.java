@@ -0,0 +1,135 @@
+package com.rengwuxian.materialedittext;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.rengwuxian.materialedittext.validation.METLengthChecker;
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-row configuration of a recycled field, applied in one pass by {@link MaterialEditText#resetForReuse(METFieldConfig)}.
+ * <p/>
+ * Every value has a default, so a config only needs what differs between the rows. A config can be shared by all the
+ * rows of the same kind, it is only read when applied.
+ */
+@SuppressWarnings({"unused"})
+public class METFieldConfig {
+
+  private CharSequence text;
+  private CharSequence hint;
+  private CharSequence floatingLabelText;
+  private CharSequence helperText;
+  private CharSequence errorText;
+  private int minCharacters;
+  private int maxCharacters;
+  private boolean autoValidate;
+  private METLengthChecker lengthChecker;
+  private final List<METValidator> validators = new ArrayList<>();
+
+  public METFieldConfig setText(@Nullable CharSequence text) {
+    this.text = text;
+    return this;
+  }
+
+  public METFieldConfig setHint(@Nullable CharSequence hint) {
+    this.hint = hint;
+    return this;
+  }
+
+  /**
+   * @param floatingLabelText The floating label, or null to use the hint.
+   */
+  public METFieldConfig setFloatingLabelText(@Nullable CharSequence floatingLabelText) {
+    this.floatingLabelText = floatingLabelText;
+    return this;
+  }
+
+  public METFieldConfig setHelperText(@Nullable CharSequence helperText) {
+    this.helperText = helperText;
+    return this;
+  }
+
+  /**
+   * @param errorText The error to show, or null to keep the result of the auto validation, if enabled.
+   */
+  public METFieldConfig setError(@Nullable CharSequence errorText) {
+    this.errorText = errorText;
+    return this;
+  }
+
+  public METFieldConfig setMinCharacters(int minCharacters) {
+    this.minCharacters = minCharacters;
+    return this;
+  }
+
+  public METFieldConfig setMaxCharacters(int maxCharacters) {
+    this.maxCharacters = maxCharacters;
+    return this;
+  }
+
+  public METFieldConfig setAutoValidate(boolean autoValidate) {
+    this.autoValidate = autoValidate;
+    return this;
+  }
+
+  public METFieldConfig setLengthChecker(@Nullable METLengthChecker lengthChecker) {
+    this.lengthChecker = lengthChecker;
+    return this;
+  }
+
+  public METFieldConfig addValidator(@NonNull METValidator validator) {
+    validators.add(validator);
+    return this;
+  }
+
+  @Nullable
+  public CharSequence getText() {
+    return text;
+  }
+
+  @Nullable
+  public CharSequence getHint() {
+    return hint;
+  }
+
+  @Nullable
+  public CharSequence getFloatingLabelText() {
+    return floatingLabelText;
+  }
+
+  @Nullable
+  public CharSequence getHelperText() {
+    return helperText;
+  }
+
+  @Nullable
+  public CharSequence getError() {
+    return errorText;
+  }
+
+  public int getMinCharacters() {
+    return minCharacters;
+  }
+
+  public int getMaxCharacters() {
+    return maxCharacters;
+  }
+
+  public boolean isAutoValidate() {
+    return autoValidate;
+  }
+
+  @Nullable
+  public METLengthChecker getLengthChecker() {
+    return lengthChecker;
+  }
+
+  @NonNull
+  public List<METValidator> getValidators() {
+    return validators;
+  }
+
+}
@@ -0,0 +1,264 @@
+package com.rengwuxian.materialedittext;
+
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import com.rengwuxian.materialedittext.validation.METCrossFieldValidator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Group of fields validated by {@link METCrossFieldValidator}s.
+ * <p/>
+ * The form keeps a dependency graph from every field to the rules reading it. When a field's text changes, only the
+ * fields owning an affected rule are re-evaluated; rules of unrelated fields are left alone.
+ */
+@SuppressWarnings({"unused"})
+public class METForm {
+
+  /**
+   * Rules to check, per validated field, in insertion order.
+   */
+  private final Map<TextView, List<METCrossFieldValidator>> rules = new LinkedHashMap<>();
+
+  /**
+   * Validated fields to re-evaluate when a field changes, the field itself included if it owns rules.
+   */
+  private final Map<TextView, Set<TextView>> dependents = new HashMap<>();
+
+  private final Map<TextView, TextWatcher> watchers = new HashMap<>();
+
+  /**
+   * Error texts the rules set on their fields. Once the rules pass, only these are cleared: the errors of the fields'
+   * own validators are left alone.
+   */
+  private final Map<TextView, CharSequence> reportedErrors = new HashMap<>();
+
+  /**
+   * Nesting depth of {@link #beginBatchUpdate()}, the fields batched by it and the fields to re-evaluate when it ends.
+   */
+  private int batchDepth;
+  private final List<BatchUpdatable> batchFields = new ArrayList<>();
+  private final Set<TextView> pendingFields = new LinkedHashSet<>();
+
+  /**
+   * Adds a rule to the given field. It will be checked whenever the field or one of the rule's dependencies changes.
+   *
+   * @param field     The field showing the error if the rule fails.
+   * @param validator Rule to add.
+   * @return This instance, for easy chaining.
+   */
+  public METForm addValidator(@NonNull TextView field, @NonNull METCrossFieldValidator validator) {
+    List<METCrossFieldValidator> fieldRules = rules.get(field);
+    if (fieldRules == null) {
+      fieldRules = new ArrayList<>();
+      rules.put(field, fieldRules);
+    }
+    fieldRules.add(validator);
+    addDependent(field, field);
+    for (TextView dependency : validator.getDependencies()) {
+      addDependent(dependency, field);
+    }
+    return this;
+  }
+
+  /**
+   * Removes every rule owned by or depending on the given field, and stops observing it. The errors the removed rules
+   * reported are cleared, the fields keeping other rules are re-evaluated.
+   */
+  public void removeField(@NonNull TextView field) {
+    rules.remove(field);
+    clearReportedError(field);
+    List<TextView> owners = new ArrayList<>();
+    for (Map.Entry<TextView, List<METCrossFieldValidator>> entry : rules.entrySet()) {
+      List<METCrossFieldValidator> fieldRules = entry.getValue();
+      for (int i = fieldRules.size() - 1; i >= 0; i--) {
+        for (TextView dependency : fieldRules.get(i).getDependencies()) {
+          if (dependency == field) {
+            fieldRules.remove(i);
+            if (!owners.contains(entry.getKey())) owners.add(entry.getKey());
+            break;
+          }
+        }
+      }
+    }
+    rebuildDependents();
+    for (TextView owner : owners) {
+      if (batchDepth > 0) {
+        pendingFields.add(owner);
+      } else {
+        validate(owner);
+      }
+    }
+  }
+
+  /**
+   * Removes all the rules, clearing the errors they reported.
+   */
+  public void clear() {
+    rules.clear();
+    for (TextView field : new ArrayList<>(reportedErrors.keySet())) {
+      clearReportedError(field);
+    }
+    rebuildDependents();
+  }
+
+  /**
+   * Check all rules of all fields, sets the error texts if not.
+   *
+   * @return True if all rules pass, false if not.
+   */
+  public boolean validate() {
+    boolean isValid = true;
+    for (TextView field : rules.keySet()) {
+      isValid &= validate(field);
+    }
+    return isValid;
+  }
+
+  /**
+   * Check the rules of a single field, sets its error text if not.
+   * <p/>
+   * NOTE: this stops at the first rule to report invalid. Once they pass, the field's error is only cleared if a rule
+   * set it.
+   *
+   * @return True if all the field's rules pass (or it has none), false if not.
+   */
+  public boolean validate(@NonNull TextView field) {
+    List<METCrossFieldValidator> fieldRules = rules.get(field);
+    if (fieldRules == null || fieldRules.isEmpty()) {
+      clearReportedError(field);
+      return true;
+    }
+
+    CharSequence text = field.getText();
+    if (text == null) text = "";
+    boolean isEmpty = TextUtils.isEmpty(text);
+    for (METCrossFieldValidator validator : fieldRules) {
+      if (!Callbacks.isValid(field, validator, text, isEmpty)) {
+        String errorMessage = validator.getErrorMessage();
+        field.setError(errorMessage);
+        reportedErrors.put(field, errorMessage);
+        return false;
+      }
+    }
+    clearReportedError(field);
+    return true;
+  }
+
+  /**
+   * Clear the error a rule reported on the field, unless the field's own validators replaced it since.
+   */
+  private void clearReportedError(@NonNull TextView field) {
+    CharSequence reportedError = reportedErrors.remove(field);
+    if (reportedError != null && TextUtils.equals(reportedError, field.getError())) field.setError(null);
+  }
+
+  /**
+   * Start a batch of changes on all the fields of the form, e.g. when restoring a draft. Until the matching
+   * {@link #endBatchUpdate()}, the fields record their changes without transitions or layout (see
+   * {@link MaterialEditText#beginBatchUpdate()}) and the rules are not evaluated.
+   */
+  public void beginBatchUpdate() {
+    if (batchDepth++ > 0) return;
+    for (TextView field : dependents.keySet()) {
+      if (field instanceof BatchUpdatable) {
+        BatchUpdatable batchField = (BatchUpdatable) field;
+        batchField.beginBatchUpdate();
+        batchFields.add(batchField);
+      }
+    }
+  }
+
+  /**
+   * End a batch started with {@link #beginBatchUpdate()}. The outermost batch evaluates each affected field once, then
+   * lets every field apply its final state.
+   */
+  public void endBatchUpdate() {
+    if (batchDepth == 0) throw new IllegalStateException("endBatchUpdate() called without beginBatchUpdate()");
+    if (--batchDepth > 0) return;
+    for (TextView target : pendingFields) {
+      validate(target);
+    }
+    pendingFields.clear();
+    for (BatchUpdatable batchField : batchFields) {
+      batchField.endBatchUpdate();
+    }
+    batchFields.clear();
+  }
+
+  /**
+   * Called when the text of {@code field} has changed. Re-evaluates only the fields owning a rule reading it.
+   */
+  void onFieldChanged(@NonNull TextView field) {
+    Set<TextView> affected = dependents.get(field);
+    if (affected == null) return;
+    if (batchDepth > 0) {
+      pendingFields.addAll(affected);
+      return;
+    }
+    for (TextView target : affected) {
+      validate(target);
+    }
+  }
+
+  private void addDependent(@NonNull TextView field, @NonNull TextView target) {
+    Set<TextView> fieldDependents = dependents.get(field);
+    if (fieldDependents == null) {
+      fieldDependents = new LinkedHashSet<>();
+      dependents.put(field, fieldDependents);
+      observe(field);
+    }
+    fieldDependents.add(target);
+  }
+
+  private void rebuildDependents() {
+    Map<TextView, TextWatcher> oldWatchers = new HashMap<>(watchers);
+    dependents.clear();
+    watchers.clear();
+    for (Map.Entry<TextView, TextWatcher> entry : oldWatchers.entrySet()) {
+      entry.getKey().removeTextChangedListener(entry.getValue());
+    }
+    for (Map.Entry<TextView, List<METCrossFieldValidator>> entry : rules.entrySet()) {
+      TextView field = entry.getKey();
+      addDependent(field, field);
+      for (METCrossFieldValidator validator : entry.getValue()) {
+        for (TextView dependency : validator.getDependencies()) {
+          addDependent(dependency, field);
+        }
+      }
+    }
+  }
+
+  private void observe(@NonNull final TextView field) {
+    TextWatcher watcher = new TextWatcher() {
+      @Override
+      public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        // Not used
+      }
+
+      @Override
+      public void onTextChanged(CharSequence s, int start, int before, int count) {
+        // Not used
+      }
+
+      @Override
+      public void afterTextChanged(Editable s) {
+        onFieldChanged(field);
+      }
+    };
+    watchers.put(field, watcher);
+    field.addTextChangedListener(watcher);
+  }
+
+}
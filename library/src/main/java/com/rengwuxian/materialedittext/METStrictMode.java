@@ -0,0 +1,172 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StrictMode-like policy catching slow {@link com.rengwuxian.materialedittext.validation.METValidator#isValid(CharSequence, boolean)}
+ * and {@link com.rengwuxian.materialedittext.validation.METLengthChecker#getLength(CharSequence)} calls on the UI
+ * thread.
+ * <p/>
+ * Disabled by default. A typical setup logs in every build and throws in debug builds:
+ * <pre>
+ * METStrictMode.enableDefaults(context);
+ * </pre>
+ */
+@SuppressWarnings({"unused"})
+public final class METStrictMode {
+
+  /**
+   * Log violations with {@link Log#w(String, String, Throwable)}.
+   */
+  public static final int PENALTY_LOG = 1;
+
+  /**
+   * Deliver violations to the listener set with {@link #setOnViolationListener(OnViolationListener)}.
+   */
+  public static final int PENALTY_LISTENER = 1 << 1;
+
+  /**
+   * Crash with the {@link Violation}. Meant for debug builds.
+   * <p/>
+   * The offending calls are made from text watchers, layout and drawing, so the violation isn't thrown from the call
+   * itself: that would leave the edit or the frame half done. It is thrown from a message posted to the main thread
+   * instead, once the edit or the frame completed.
+   */
+  public static final int PENALTY_DEATH = 1 << 2;
+
+  public static final long DEFAULT_THRESHOLD_MILLIS = 4;
+
+  private static final String TAG = "METStrictMode";
+
+  private static volatile long thresholdNanos;
+  private static volatile int penalties;
+  private static volatile OnViolationListener listener;
+
+  private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  /**
+   * Token of the messages throwing violations.
+   */
+  private static final Object DEATH_TOKEN = new Object();
+
+  public interface OnViolationListener {
+    void onViolation(@NonNull Violation violation);
+  }
+
+  private METStrictMode() {
+  }
+
+  /**
+   * Report UI thread validator and length checker calls slower than the threshold.
+   *
+   * @param thresholdMillis Slowest accepted call, in milliseconds.
+   * @param penalties       Combination of {@link #PENALTY_LOG}, {@link #PENALTY_LISTENER} and {@link #PENALTY_DEATH}.
+   */
+  public static void enable(long thresholdMillis, int penalties) {
+    METStrictMode.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    METStrictMode.penalties = penalties;
+  }
+
+  /**
+   * Enable with {@link #DEFAULT_THRESHOLD_MILLIS}, logging violations, and throwing them too if the app is debuggable.
+   */
+  public static void enableDefaults(@NonNull Context context) {
+    boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    enable(DEFAULT_THRESHOLD_MILLIS, PENALTY_LOG | (debuggable ? PENALTY_DEATH : 0));
+  }
+
+  public static void disable() {
+    penalties = 0;
+  }
+
+  public static boolean isEnabled() {
+    return penalties != 0;
+  }
+
+  public static void setOnViolationListener(@Nullable OnViolationListener listener) {
+    METStrictMode.listener = listener;
+  }
+
+  /**
+   * @return True if calls made on the current thread should be timed.
+   */
+  static boolean isActive() {
+    return penalties != 0 && Looper.getMainLooper().isCurrentThread();
+  }
+
+  static void check(@NonNull View field, @NonNull Object callback, long durationNanos) {
+    int penalties = METStrictMode.penalties;
+    if (penalties == 0 || durationNanos <= thresholdNanos) return;
+
+    Violation violation = new Violation(field, callback.getClass(), durationNanos, thresholdNanos);
+    if ((penalties & PENALTY_LOG) != 0) Log.w(TAG, violation.getMessage(), violation);
+    OnViolationListener listener = METStrictMode.listener;
+    if ((penalties & PENALTY_LISTENER) != 0 && listener != null) listener.onViolation(violation);
+    if ((penalties & PENALTY_DEATH) != 0) {
+      mainHandler.postAtTime(() -> {
+        throw violation;
+      }, DEATH_TOKEN, SystemClock.uptimeMillis());
+    }
+  }
+
+  /**
+   * Drop the violations about to be thrown, so tests can check the calls complete.
+   */
+  @VisibleForTesting
+  static void cancelPendingDeaths() {
+    mainHandler.removeCallbacksAndMessages(DEATH_TOKEN);
+  }
+
+  /**
+   * A validator or length checker call on the UI thread that exceeded the policy's threshold.
+   */
+  public static final class Violation extends RuntimeException {
+    private final int fieldId;
+    private final Class<?> callbackClass;
+    private final long durationNanos;
+
+    Violation(@NonNull View field, @NonNull Class<?> callbackClass, long durationNanos, long thresholdNanos) {
+      super(callbackClass.getName() + " took " + TimeUnit.NANOSECONDS.toMicros(durationNanos) + "us on the UI thread (threshold "
+              + TimeUnit.NANOSECONDS.toMicros(thresholdNanos) + "us) for field " + getFieldName(field));
+      this.fieldId = field.getId();
+      this.callbackClass = callbackClass;
+      this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return The id of the field the slow call was made for, or {@link View#NO_ID}.
+     */
+    public int getFieldId() {
+      return fieldId;
+    }
+
+    /**
+     * @return The class of the slow validator or length checker.
+     */
+    @NonNull
+    public Class<?> getCallbackClass() {
+      return callbackClass;
+    }
+
+    public long getDurationNanos() {
+      return durationNanos;
+    }
+
+    private static String getFieldName(@NonNull View field) {
+      return METValidationMonitor.getFieldName(field.getId(), field.getResources());
+    }
+  }
+
+}
@@ -0,0 +1,341 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ImageDecoder;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+
+import java.io.IOException;
+
+/**
+ * The {@code met_*} attributes and paddings of a style, resolved once per theme and configuration, and shared by the
+ * fields created with it: they read their initial state from the preset instead of resolving the attributes again.
+ * <p/>
+ * Inflated fields use a preset too when their XML only gives a {@code style} and no {@code met_*} or padding attribute
+ * of their own. Otherwise their attributes are resolved for them alone, as before.
+ * <p/>
+ * The preset also holds what the fields never change: the icons' geometry, the clear button and the typefaces. The
+ * icons are only resolved to their resources, the fields decode them in the background.
+ */
+public final class METStyle {
+
+  /**
+   * Presets per theme and configuration, then per style resource.
+   */
+  private static final ThemeCache<SparseArray<METStyle>> cache = new ThemeCache<>();
+
+  /**
+   * Attributes of the field's own, which prevent using a preset.
+   */
+  private static final String[] PADDING_ATTRIBUTES = {"padding", "paddingLeft", "paddingTop", "paddingRight", "paddingBottom"};
+
+  /**
+   * Placeholder used by the layout editor, which doesn't resolve the attributes.
+   */
+  static final METStyle EDIT_MODE = new METStyle();
+
+  final ColorStateList textColor;
+  final ColorStateList textColorHint;
+  final int baseColor;
+  final int primaryColor;
+  final int floatingLabel;
+  final int errorColor;
+  final int minCharacters;
+  final int maxCharacters;
+  final boolean singleLineEllipsis;
+  final String helperText;
+  final int helperTextColor;
+  final int minBottomTextLines;
+  final Typeface accentTypeface;
+  final Typeface typeface;
+  final String floatingLabelText;
+  final int floatingLabelPadding;
+  final int floatingLabelTextSize;
+  final int floatingLabelTextColor;
+  final boolean floatingLabelAnimating;
+  final int bottomTextSize;
+  final boolean hideUnderline;
+  final int underlineColor;
+  final boolean autoValidate;
+  /**
+   * Resources of the icons, -1 for none.
+   */
+  @DrawableRes
+  final int iconLeft;
+  @DrawableRes
+  final int iconRight;
+  final boolean clearButton;
+  final boolean floatingLabelAlwaysShown;
+  final boolean helperTextAlwaysShown;
+  final boolean validateOnFocusLost;
+  final boolean checkCharactersCountAtBeginning;
+
+  final int paddingLeft;
+  final int paddingTop;
+  final int paddingRight;
+  final int paddingBottom;
+
+  /**
+   * Geometry of the decorations.
+   */
+  final int iconSize;
+  final int iconOuterWidth;
+  final int iconOuterHeight;
+  final int iconPadding;
+  final int bottomSpacing;
+  final int bottomEllipsisSize;
+
+  /**
+   * Clear button, shared untinted by all the fields.
+   */
+  final Bitmap clearButtonIcon;
+
+  private METStyle() {
+    textColor = null;
+    textColorHint = null;
+    baseColor = Color.BLACK;
+    primaryColor = Color.BLACK;
+    floatingLabel = FieldEngine.FLOATING_LABEL_NONE;
+    errorColor = 0;
+    minCharacters = 0;
+    maxCharacters = 0;
+    singleLineEllipsis = false;
+    helperText = null;
+    helperTextColor = -1;
+    minBottomTextLines = 0;
+    accentTypeface = null;
+    typeface = null;
+    floatingLabelText = null;
+    floatingLabelPadding = 0;
+    floatingLabelTextSize = 0;
+    floatingLabelTextColor = -1;
+    floatingLabelAnimating = true;
+    bottomTextSize = 0;
+    hideUnderline = false;
+    underlineColor = -1;
+    autoValidate = false;
+    iconLeft = -1;
+    iconRight = -1;
+    clearButton = false;
+    floatingLabelAlwaysShown = false;
+    helperTextAlwaysShown = false;
+    validateOnFocusLost = false;
+    checkCharactersCountAtBeginning = true;
+    paddingLeft = paddingTop = paddingRight = paddingBottom = 0;
+    iconSize = iconOuterWidth = iconOuterHeight = iconPadding = bottomSpacing = bottomEllipsisSize = 0;
+    clearButtonIcon = null;
+  }
+
+  private METStyle(@NonNull Context context, @Nullable AttributeSet attrs, @StyleRes int styleRes) {
+    Resources resources = context.getResources();
+    iconSize = Density.dp2px(context, 32);
+    iconOuterWidth = Density.dp2px(context, 40);  // Default 48
+    iconOuterHeight = Density.dp2px(context, 34); // Default 32
+    bottomSpacing = resources.getDimensionPixelSize(R.dimen.inner_components_spacing);
+    bottomEllipsisSize = resources.getDimensionPixelSize(R.dimen.bottom_ellipsis_height);
+
+    try (TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.MaterialEditText, 0, styleRes)) {
+      textColor = typedArray.getColorStateList(R.styleable.MaterialEditText_met_textColor);
+      textColorHint = typedArray.getColorStateList(R.styleable.MaterialEditText_met_textColorHint);
+      baseColor = typedArray.getColor(R.styleable.MaterialEditText_met_baseColor, Color.BLACK);
+
+      int defaultPrimaryColor;
+      TypedValue typedValue = new TypedValue();
+      if (context.getTheme().resolveAttribute(android.R.attr.colorPrimary, typedValue, true)) {
+        defaultPrimaryColor = typedValue.data;
+      } else {
+        defaultPrimaryColor = baseColor;
+      }
+
+      primaryColor = typedArray.getColor(R.styleable.MaterialEditText_met_primaryColor, defaultPrimaryColor);
+      floatingLabel = typedArray.getInt(R.styleable.MaterialEditText_met_floatingLabel, 0);
+      errorColor = typedArray.getColor(R.styleable.MaterialEditText_met_errorColor, Color.parseColor("#e7492E"));
+      minCharacters = typedArray.getInt(R.styleable.MaterialEditText_met_minCharacters, 0);
+      maxCharacters = typedArray.getInt(R.styleable.MaterialEditText_met_maxCharacters, 0);
+      singleLineEllipsis = typedArray.getBoolean(R.styleable.MaterialEditText_met_singleLineEllipsis, false);
+      helperText = typedArray.getString(R.styleable.MaterialEditText_met_helperText);
+      helperTextColor = typedArray.getColor(R.styleable.MaterialEditText_met_helperTextColor, -1);
+      minBottomTextLines = typedArray.getInt(R.styleable.MaterialEditText_met_minBottomTextLines, 0);
+      String fontPathForAccent = typedArray.getString(R.styleable.MaterialEditText_met_accentTypeface);
+      accentTypeface = fontPathForAccent == null ? null : Typeface.createFromAsset(context.getAssets(), fontPathForAccent);
+      String fontPathForView = typedArray.getString(R.styleable.MaterialEditText_met_typeface);
+      typeface = fontPathForView == null ? null : Typeface.createFromAsset(context.getAssets(), fontPathForView);
+      floatingLabelText = typedArray.getString(R.styleable.MaterialEditText_met_floatingLabelText);
+      floatingLabelPadding = typedArray.getDimensionPixelSize(R.styleable.MaterialEditText_met_floatingLabelPadding, bottomSpacing);
+      floatingLabelTextSize = typedArray.getDimensionPixelSize(R.styleable.MaterialEditText_met_floatingLabelTextSize, resources.getDimensionPixelSize(R.dimen.floating_label_text_size));
+      floatingLabelTextColor = typedArray.getColor(R.styleable.MaterialEditText_met_floatingLabelTextColor, -1);
+      floatingLabelAnimating = typedArray.getBoolean(R.styleable.MaterialEditText_met_floatingLabelAnimating, true);
+      bottomTextSize = typedArray.getDimensionPixelSize(R.styleable.MaterialEditText_met_bottomTextSize, resources.getDimensionPixelSize(R.dimen.bottom_text_size));
+      hideUnderline = typedArray.getBoolean(R.styleable.MaterialEditText_met_hideUnderline, false);
+      underlineColor = typedArray.getColor(R.styleable.MaterialEditText_met_underlineColor, -1);
+      autoValidate = typedArray.getBoolean(R.styleable.MaterialEditText_met_autoValidate, false);
+      iconLeft = typedArray.getResourceId(R.styleable.MaterialEditText_met_iconLeft, -1);
+      iconRight = typedArray.getResourceId(R.styleable.MaterialEditText_met_iconRight, -1);
+      clearButton = typedArray.getBoolean(R.styleable.MaterialEditText_met_clearButton, false);
+      iconPadding = typedArray.getDimensionPixelSize(R.styleable.MaterialEditText_met_iconPadding, Density.dp2px(context, 16));
+      floatingLabelAlwaysShown = typedArray.getBoolean(R.styleable.MaterialEditText_met_floatingLabelAlwaysShown, false);
+      helperTextAlwaysShown = typedArray.getBoolean(R.styleable.MaterialEditText_met_helperTextAlwaysShown, false);
+      validateOnFocusLost = typedArray.getBoolean(R.styleable.MaterialEditText_met_validateOnFocusLost, false);
+      checkCharactersCountAtBeginning = typedArray.getBoolean(R.styleable.MaterialEditText_met_checkCharactersCountAtBeginning, true);
+    }
+    clearButtonIcon = IconCache.obtain(context, R.drawable.met_ic_clear, iconSize);
+
+    int[] paddings = new int[]{
+            android.R.attr.padding,       // 0
+            android.R.attr.paddingLeft,   // 1
+            android.R.attr.paddingTop,    // 2
+            android.R.attr.paddingRight,  // 3
+            android.R.attr.paddingBottom  // 4
+    };
+
+    try (TypedArray paddingsTypedArray = context.obtainStyledAttributes(attrs, paddings, 0, styleRes)) {
+      int padding = paddingsTypedArray.getDimensionPixelSize(0, 0);
+      paddingLeft = paddingsTypedArray.getDimensionPixelSize(1, padding);
+      paddingTop = paddingsTypedArray.getDimensionPixelSize(2, padding);
+      paddingRight = paddingsTypedArray.getDimensionPixelSize(3, padding);
+      paddingBottom = paddingsTypedArray.getDimensionPixelSize(4, padding);
+    }
+  }
+
+  /**
+   * @param styleRes The style to resolve against the context's theme, or 0 for the theme's defaults.
+   * @return The preset of the given style, resolved on the first call for the context's theme.
+   */
+  @NonNull
+  public static METStyle obtain(@NonNull Context context, @StyleRes int styleRes) {
+    IconCache.registerCallbacks(context);
+    synchronized (cache) {
+      SparseArray<METStyle> styles = cache.get(context);
+      if (styles == null) {
+        styles = new SparseArray<>();
+        cache.put(context, styles);
+      }
+      METStyle style = styles.get(styleRes);
+      if (style == null) {
+        style = new METStyle(context, null, styleRes);
+        styles.put(styleRes, style);
+      }
+      return style;
+    }
+  }
+
+  /**
+   * Drop all the presets, e.g. when the app is in the background or the configuration changed. The fields keep the ones
+   * they were created with.
+   */
+  static void clearCache() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * @return The preset for an inflated field, shared if its XML only sets a style.
+   */
+  @NonNull
+  static METStyle resolve(@NonNull Context context, @Nullable AttributeSet attrs) {
+    if (attrs == null) return obtain(context, 0);
+    if (hasOwnAttributes(attrs)) return new METStyle(context, attrs, 0);
+    return obtain(context, attrs.getStyleAttribute());
+  }
+
+  private static boolean hasOwnAttributes(@NonNull AttributeSet attrs) {
+    for (int i = 0; i < attrs.getAttributeCount(); i++) {
+      String name = attrs.getAttributeName(i);
+      if (name.startsWith("met_")) return true;
+      for (String padding : PADDING_ATTRIBUTES) {
+        if (padding.equals(name)) return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Decode the icon once, at its size scaled down to fit {@code iconSize}. Bitmaps are subsampled while decoding from
+   * API 28, other drawables, e.g. vectors, are drawn at that size.
+   *
+   * @return The icon, or null if {@code res} is -1 or can't be decoded.
+   */
+  @Nullable
+  static Bitmap decodeIcon(@NonNull Resources resources, @Nullable Resources.Theme theme, @DrawableRes int res, int iconSize) {
+    if (res == -1) return null;
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+      try {
+        return ImageDecoder.decodeBitmap(ImageDecoder.createSource(resources, res), (decoder, info, source) -> {
+          int width = info.getSize().getWidth();
+          int height = info.getSize().getHeight();
+          int size = Math.max(width, height);
+          if (size > iconSize) decoder.setTargetSize(Math.max(1, width * iconSize / size), Math.max(1, height * iconSize / size));
+          // Drawn on the software canvases of the recorded decorations too
+          decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+        });
+      } catch (IOException | Resources.NotFoundException e) {
+        // Not a bitmap, drawn below
+      }
+    }
+    Drawable drawable = resources.getDrawable(res, theme);
+    return drawable == null ? null : rasterizeIcon(drawable, iconSize);
+  }
+
+  /**
+   * @return The drawable, drawn at its intrinsic size scaled down to fit {@code iconSize}.
+   */
+  @NonNull
+  static Bitmap rasterizeIcon(@NonNull Drawable drawable, int iconSize) {
+    int width = drawable.getIntrinsicWidth() > 0 ? drawable.getIntrinsicWidth() : iconSize;
+    int height = drawable.getIntrinsicHeight() > 0 ? drawable.getIntrinsicHeight() : iconSize;
+    int size = Math.max(width, height);
+    if (size > iconSize) {
+      width = Math.max(1, width * iconSize / size);
+      height = Math.max(1, height * iconSize / size);
+    }
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    drawable.setBounds(0, 0, width, height);
+    drawable.draw(canvas);
+    return bitmap;
+  }
+
+  /**
+   * @return The icon, scaled down to fit {@code iconSize}.
+   */
+  @NonNull
+  static Bitmap scaleIcon(@NonNull Bitmap origin, int iconSize) {
+    int width = origin.getWidth();
+    int height = origin.getHeight();
+    int size = Math.max(width, height);
+    if (size == iconSize) {
+      return origin;
+    } else if (size > iconSize) {
+      int scaledWidth;
+      int scaledHeight;
+      if (width > iconSize) {
+        scaledWidth = iconSize;
+        scaledHeight = (int) (iconSize * ((float) height / width));
+      } else {
+        scaledHeight = iconSize;
+        scaledWidth = (int) (iconSize * ((float) width / height));
+      }
+      return Bitmap.createScaledBitmap(origin, scaledWidth, scaledHeight, false);
+    } else {
+      return origin;
+    }
+  }
+
+}
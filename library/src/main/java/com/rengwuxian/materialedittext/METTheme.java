@@ -0,0 +1,162 @@
+package com.rengwuxian.materialedittext;
+
+import android.graphics.Color;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Colors shared by many fields, e.g. to switch a whole screen to dark mode or to dynamic colors at once.
+ * <p/>
+ * Fields subscribe with {@code setMetTheme(METTheme)} and take the theme's colors, replacing the ones they had. Every
+ * change recolors all of them in the next frame: their texts are left alone and their icons, tinted while drawing, are
+ * not generated again. Wrap several changes in {@link #beginBatchUpdate()} and {@link #endBatchUpdate()} to recolor the
+ * fields only once.
+ * <p/>
+ * The theme only holds weak references to its fields, and must be changed on the main thread.
+ */
+@SuppressWarnings({"unused"})
+public class METTheme implements BatchUpdatable {
+
+  private int baseColor;
+  private int primaryColor;
+  private int errorColor;
+  private int underlineColor = -1;
+  private int floatingLabelTextColor = -1;
+  private int helperTextColor = -1;
+
+  private final List<WeakReference<FieldEngine>> subscribers = new ArrayList<>();
+
+  /**
+   * Nesting depth of {@link #beginBatchUpdate()}, and whether a color changed inside the batch.
+   */
+  private int batchDepth;
+  private boolean changePending;
+
+  /**
+   * @param baseColor    See {@link MaterialEditText#setBaseColor(int)}.
+   * @param primaryColor See {@link MaterialEditText#setPrimaryColor(int)}.
+   */
+  public METTheme(int baseColor, int primaryColor) {
+    this(baseColor, primaryColor, Color.parseColor("#e7492E"));
+  }
+
+  public METTheme(int baseColor, int primaryColor, int errorColor) {
+    this.baseColor = baseColor;
+    this.primaryColor = primaryColor;
+    this.errorColor = errorColor;
+  }
+
+  public int getBaseColor() {
+    return baseColor;
+  }
+
+  public void setBaseColor(int color) {
+    if (baseColor == color) return;
+    baseColor = color;
+    notifyChanged();
+  }
+
+  public int getPrimaryColor() {
+    return primaryColor;
+  }
+
+  public void setPrimaryColor(int color) {
+    if (primaryColor == color) return;
+    primaryColor = color;
+    notifyChanged();
+  }
+
+  public int getErrorColor() {
+    return errorColor;
+  }
+
+  public void setErrorColor(int color) {
+    if (errorColor == color) return;
+    errorColor = color;
+    notifyChanged();
+  }
+
+  public int getUnderlineColor() {
+    return underlineColor;
+  }
+
+  /**
+   * @param color The underline color, or -1 to derive it from the base color.
+   */
+  public void setUnderlineColor(int color) {
+    if (underlineColor == color) return;
+    underlineColor = color;
+    notifyChanged();
+  }
+
+  public int getFloatingLabelTextColor() {
+    return floatingLabelTextColor;
+  }
+
+  /**
+   * @param color The floating label color, or -1 to derive it from the base color.
+   */
+  public void setFloatingLabelTextColor(int color) {
+    if (floatingLabelTextColor == color) return;
+    floatingLabelTextColor = color;
+    notifyChanged();
+  }
+
+  public int getHelperTextColor() {
+    return helperTextColor;
+  }
+
+  /**
+   * @param color The helper text color, or -1 to derive it from the base color.
+   */
+  public void setHelperTextColor(int color) {
+    if (helperTextColor == color) return;
+    helperTextColor = color;
+    notifyChanged();
+  }
+
+  @Override
+  public void beginBatchUpdate() {
+    batchDepth++;
+  }
+
+  @Override
+  public void endBatchUpdate() {
+    if (batchDepth == 0) throw new IllegalStateException("endBatchUpdate() called without beginBatchUpdate()");
+    if (--batchDepth > 0) return;
+    if (changePending) {
+      changePending = false;
+      notifyChanged();
+    }
+  }
+
+  void subscribe(FieldEngine engine) {
+    subscribers.add(new WeakReference<>(engine));
+  }
+
+  void unsubscribe(FieldEngine engine) {
+    for (Iterator<WeakReference<FieldEngine>> iterator = subscribers.iterator(); iterator.hasNext(); ) {
+      FieldEngine subscriber = iterator.next().get();
+      if (subscriber == null || subscriber == engine) iterator.remove();
+    }
+  }
+
+  private void notifyChanged() {
+    if (batchDepth > 0) {
+      changePending = true;
+      return;
+    }
+    for (Iterator<WeakReference<FieldEngine>> iterator = subscribers.iterator(); iterator.hasNext(); ) {
+      FieldEngine subscriber = iterator.next().get();
+      if (subscriber == null) {
+        iterator.remove();
+      } else {
+        subscriber.applyTheme(this);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,253 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.res.Resources;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.rengwuxian.materialedittext.validation.METValidator;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide instrumentation of the validation path ({@code validate()}, {@code validateWith()}, auto-validate and
+ * {@link METForm}).
+ * <p/>
+ * Records invocation, pass and fail counts and a latency histogram per validator class and per field id. Disabled by
+ * default; when disabled, validators are called directly and nothing is timed or recorded.
+ */
+@SuppressWarnings({"unused"})
+public final class METValidationMonitor {
+
+  public interface Listener {
+    /**
+     * Called on the validating thread after each validator invocation.
+     *
+     * @param field         The validated field.
+     * @param validator     The validator that ran.
+     * @param valid         Its result.
+     * @param durationNanos How long {@link METValidator#isValid(CharSequence, boolean)} took.
+     */
+    void onValidated(@NonNull View field, @NonNull METValidator validator, boolean valid, long durationNanos);
+  }
+
+  /**
+   * Upper bounds (exclusive, in microseconds) of the histogram buckets. The last bucket holds everything slower.
+   */
+  private static final long[] BUCKET_BOUNDS_MICROS = {50, 100, 250, 500, 1000, 2000, 4000, 8000, 16000};
+
+  private static final Object LOCK = new Object();
+  private static final Map<Class<?>, SparseArray<Stats>> STATS = new HashMap<>();
+  private static volatile boolean enabled;
+  private static volatile Listener listener;
+
+  private METValidationMonitor() {
+  }
+
+  public static void setEnabled(boolean enabled) {
+    METValidationMonitor.enabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Set a listener notified of every recorded invocation. Only called while the monitor is enabled.
+   */
+  public static void setListener(@Nullable Listener listener) {
+    METValidationMonitor.listener = listener;
+  }
+
+  public static void reset() {
+    synchronized (LOCK) {
+      STATS.clear();
+    }
+  }
+
+  /**
+   * @return A snapshot of the recorded statistics, one entry per (validator class, field id).
+   */
+  @NonNull
+  public static List<Stats> getStats() {
+    List<Stats> snapshot = new ArrayList<>();
+    synchronized (LOCK) {
+      for (SparseArray<Stats> perField : STATS.values()) {
+        for (int i = 0; i < perField.size(); i++) {
+          snapshot.add(new Stats(perField.valueAt(i)));
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  @NonNull
+  public static String dump() {
+    StringWriter writer = new StringWriter();
+    dump(new PrintWriter(writer), null);
+    return writer.toString();
+  }
+
+  /**
+   * Print the recorded statistics, one line per (validator class, field id).
+   *
+   * @param resources Used to print field ids as entry names, may be null.
+   */
+  public static void dump(@NonNull PrintWriter writer, @Nullable Resources resources) {
+    for (Stats stats : getStats()) {
+      writer.print(stats.validatorClass.getName());
+      writer.print(" @");
+      writer.print(getFieldName(stats.fieldId, resources));
+      writer.print(": n=");
+      writer.print(stats.invocations);
+      writer.print(" pass=");
+      writer.print(stats.passes);
+      writer.print(" fail=");
+      writer.print(stats.failures);
+      writer.print(" avg=");
+      writer.print(TimeUnit.NANOSECONDS.toMicros(stats.getAverageNanos()));
+      writer.print("us max=");
+      writer.print(TimeUnit.NANOSECONDS.toMicros(stats.maxNanos));
+      writer.print("us [");
+      for (int i = 0; i < stats.histogram.length; i++) {
+        if (i > 0) writer.print(", ");
+        writer.print(i < BUCKET_BOUNDS_MICROS.length ? "<" + BUCKET_BOUNDS_MICROS[i] : ">=" + BUCKET_BOUNDS_MICROS[i - 1]);
+        writer.print("us:");
+        writer.print(stats.histogram[i]);
+      }
+      writer.println("]");
+    }
+    writer.flush();
+  }
+
+  static void record(@NonNull View field, @NonNull METValidator validator, boolean valid, long durationNanos) {
+    synchronized (LOCK) {
+      SparseArray<Stats> perField = STATS.get(validator.getClass());
+      if (perField == null) {
+        perField = new SparseArray<>();
+        STATS.put(validator.getClass(), perField);
+      }
+      Stats stats = perField.get(field.getId());
+      if (stats == null) {
+        stats = new Stats(validator.getClass(), field.getId());
+        perField.put(field.getId(), stats);
+      }
+      stats.record(valid, durationNanos);
+    }
+    Listener listener = METValidationMonitor.listener;
+    if (listener != null) listener.onValidated(field, validator, valid, durationNanos);
+  }
+
+  @NonNull
+  static String getFieldName(int fieldId, @Nullable Resources resources) {
+    if (fieldId == View.NO_ID) return "no-id";
+    if (resources != null) {
+      try {
+        return resources.getResourceEntryName(fieldId);
+      } catch (Resources.NotFoundException ignored) {
+        // Generated id, fall through
+      }
+    }
+    return "0x" + Integer.toHexString(fieldId);
+  }
+
+  /**
+   * Counters and latency histogram of one validator class on one field id.
+   */
+  public static final class Stats {
+    private final Class<?> validatorClass;
+    private final int fieldId;
+    private final long[] histogram;
+    private long invocations;
+    private long passes;
+    private long failures;
+    private long totalNanos;
+    private long maxNanos;
+
+    Stats(@NonNull Class<?> validatorClass, int fieldId) {
+      this.validatorClass = validatorClass;
+      this.fieldId = fieldId;
+      this.histogram = new long[BUCKET_BOUNDS_MICROS.length + 1];
+    }
+
+    Stats(@NonNull Stats other) {
+      validatorClass = other.validatorClass;
+      fieldId = other.fieldId;
+      histogram = other.histogram.clone();
+      invocations = other.invocations;
+      passes = other.passes;
+      failures = other.failures;
+      totalNanos = other.totalNanos;
+      maxNanos = other.maxNanos;
+    }
+
+    void record(boolean valid, long durationNanos) {
+      invocations++;
+      if (valid) {
+        passes++;
+      } else {
+        failures++;
+      }
+      totalNanos += durationNanos;
+      maxNanos = Math.max(maxNanos, durationNanos);
+      long micros = TimeUnit.NANOSECONDS.toMicros(durationNanos);
+      int bucket = 0;
+      while (bucket < BUCKET_BOUNDS_MICROS.length && micros >= BUCKET_BOUNDS_MICROS[bucket]) bucket++;
+      histogram[bucket]++;
+    }
+
+    @NonNull
+    public Class<?> getValidatorClass() {
+      return validatorClass;
+    }
+
+    /**
+     * @return The validated field's id, or {@link View#NO_ID}.
+     */
+    public int getFieldId() {
+      return fieldId;
+    }
+
+    public long getInvocations() {
+      return invocations;
+    }
+
+    public long getPasses() {
+      return passes;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getAverageNanos() {
+      return invocations == 0 ? 0 : totalNanos / invocations;
+    }
+
+    /**
+     * @return Invocation counts per latency bucket: &lt;50us, &lt;100us, &lt;250us, &lt;500us, &lt;1ms, &lt;2ms,
+     * &lt;4ms, &lt;8ms, &lt;16ms and &gt;=16ms.
+     */
+    @NonNull
+    public long[] getHistogram() {
+      return histogram.clone();
+    }
+  }
+
+}
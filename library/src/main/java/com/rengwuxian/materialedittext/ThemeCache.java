@@ -0,0 +1,94 @@
+package com.rengwuxian.materialedittext;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Values resolved for a context's theme, under the configuration of its resources.
+ * <p/>
+ * The themes are told apart by identity: {@link Resources.Theme#equals(Object)} only compares the applied styles, so the
+ * theme of an activity recreated for another configuration would be equal to the previous one, and
+ * {@link Resources.Theme#applyStyle(int, boolean)} changes its hash code. The configuration is part of the key too, for
+ * the activities handling their configuration changes themselves. The themes are weakly held, so the values go with
+ * their activity.
+ * <p/>
+ * Not thread safe, the callers synchronize.
+ */
+final class ThemeCache<V> {
+
+  private final HashMap<Key, V> values = new HashMap<>();
+  private final ReferenceQueue<Resources.Theme> collected = new ReferenceQueue<>();
+
+  @Nullable
+  V get(@NonNull Context context) {
+    expunge();
+    return values.get(new Key(context, null));
+  }
+
+  void put(@NonNull Context context, @NonNull V value) {
+    expunge();
+    values.put(new Key(context, collected), value);
+  }
+
+  void clear() {
+    expunge();
+    values.clear();
+  }
+
+  private void expunge() {
+    for (Object key; (key = collected.poll()) != null; ) {
+      values.remove(key);
+    }
+  }
+
+  private static final class Key extends WeakReference<Resources.Theme> {
+    private final int densityDpi;
+    private final int uiMode;
+    private final float fontScale;
+    private final Object locales;
+    private final int hash;
+
+    @SuppressWarnings("deprecation")
+    Key(@NonNull Context context, @Nullable ReferenceQueue<Resources.Theme> queue) {
+      super(context.getTheme(), queue);
+      Configuration configuration = context.getResources().getConfiguration();
+      densityDpi = configuration.densityDpi;
+      uiMode = configuration.uiMode;
+      fontScale = configuration.fontScale;
+      locales = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? configuration.getLocales() : configuration.locale;
+      int result = System.identityHashCode(context.getTheme());
+      result = 31 * result + densityDpi;
+      result = 31 * result + uiMode;
+      result = 31 * result + Float.floatToIntBits(fontScale);
+      result = 31 * result + Objects.hashCode(locales);
+      hash = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      // A collected key still matches itself, to be expunged
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      Resources.Theme theme = get();
+      return theme != null && theme == that.get() && densityDpi == that.densityDpi && uiMode == that.uiMode
+              && fontScale == that.fontScale && Objects.equals(locales, that.locales);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+}
@@ -0,0 +1,44 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Counts code points, with East Asian wide and fullwidth characters (CJK ideographs, kana, Hangul, fullwidth forms)
+ * weighted as two by default.
+ */
+@SuppressWarnings({"unused"})
+public class CjkWeightedLengthChecker extends CodePointWeightLengthChecker {
+
+  private final int wideWeight;
+
+  public CjkWeightedLengthChecker() {
+    this(2);
+  }
+
+  /**
+   * @param wideWeight The weight of a wide or fullwidth character. Other characters weigh one.
+   */
+  public CjkWeightedLengthChecker(int wideWeight) {
+    this.wideWeight = wideWeight;
+  }
+
+  @Override
+  int getWeight(int codePoint) {
+    return isWide(codePoint) ? wideWeight : 1;
+  }
+
+  static boolean isWide(int codePoint) {
+    if (codePoint < 0x1100) return false;
+    return codePoint <= 0x115F // Hangul Jamo initial consonants
+        || (codePoint >= 0x2E80 && codePoint <= 0xA4CF && codePoint != 0x303F) // CJK radicals ... Yi
+        || (codePoint >= 0xA960 && codePoint <= 0xA97F) // Hangul Jamo extended-A
+        || (codePoint >= 0xAC00 && codePoint <= 0xD7A3) // Hangul syllables
+        || (codePoint >= 0xF900 && codePoint <= 0xFAFF) // CJK compatibility ideographs
+        || (codePoint >= 0xFE10 && codePoint <= 0xFE19) // Vertical forms
+        || (codePoint >= 0xFE30 && codePoint <= 0xFE6F) // CJK compatibility forms, small form variants
+        || (codePoint >= 0xFF00 && codePoint <= 0xFF60) // Fullwidth forms
+        || (codePoint >= 0xFFE0 && codePoint <= 0xFFE6) // Fullwidth signs
+        || (codePoint >= 0x1F300 && codePoint <= 0x1F64F) // Emoji pictographs and emoticons
+        || (codePoint >= 0x1F900 && codePoint <= 0x1F9FF) // Supplemental symbols and pictographs
+        || (codePoint >= 0x20000 && codePoint <= 0x3FFFD); // CJK extensions B and beyond
+  }
+
+}
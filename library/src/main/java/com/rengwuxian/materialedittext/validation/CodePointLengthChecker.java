@@ -0,0 +1,14 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Counts Unicode code points, so that characters outside the BMP (e.g. most emoji) count as one instead of two.
+ */
+@SuppressWarnings({"unused"})
+public class CodePointLengthChecker extends CodePointWeightLengthChecker {
+
+  @Override
+  int getWeight(int codePoint) {
+    return 1;
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Base of the length checkers summing a weight per code point. Never allocates; surrogate pairs are never split.
+ */
+abstract class CodePointWeightLengthChecker extends METIncrementalLengthChecker {
+
+  /**
+   * @return The weight of the code point, or of the unpaired surrogate.
+   */
+  abstract int getWeight(int codePoint);
+
+  @Override
+  public int getLength(CharSequence text, int start, int end) {
+    int length = 0;
+    int i = start;
+    while (i < end) {
+      char c = text.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+        length += getWeight(Character.toCodePoint(c, text.charAt(i + 1)));
+        i += 2;
+      } else {
+        length += getWeight(c);
+        i++;
+      }
+    }
+    return length;
+  }
+
+  @Override
+  public int getBoundaryBefore(CharSequence text, int offset) {
+    return isInsideSurrogatePair(text, offset) ? offset - 1 : offset;
+  }
+
+  @Override
+  public int getBoundaryAfter(CharSequence text, int offset) {
+    return isInsideSurrogatePair(text, offset) ? offset + 1 : offset;
+  }
+
+  static boolean isInsideSurrogatePair(CharSequence text, int offset) {
+    return offset > 0 && offset < text.length()
+        && Character.isLowSurrogate(text.charAt(offset)) && Character.isHighSurrogate(text.charAt(offset - 1));
+  }
+
+}
@@ -0,0 +1,138 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Counts user-perceived characters (grapheme clusters), so that an emoji sequence, a flag or a letter with combining
+ * marks counts as one.
+ * <p/>
+ * Implements the extended grapheme cluster rules of UAX #29 without allocating, unlike {@link java.text.BreakIterator}.
+ * Prepend characters are not handled, and any "other symbol" after a zero width joiner is treated as pictographic.
+ */
+@SuppressWarnings({"unused"})
+public class GraphemeLengthChecker extends METIncrementalLengthChecker {
+
+  private static final int OTHER = 0;
+  private static final int CR = 1;
+  private static final int LF = 2;
+  private static final int CONTROL = 3;
+  private static final int EXTEND = 4;
+  private static final int ZWJ = 5;
+  private static final int SPACING_MARK = 6;
+  private static final int REGIONAL_INDICATOR = 7;
+  private static final int PICTOGRAPHIC = 8;
+  private static final int HANGUL_L = 9;
+  private static final int HANGUL_V = 10;
+  private static final int HANGUL_T = 11;
+  private static final int HANGUL_LV = 12;
+  private static final int HANGUL_LVT = 13;
+
+  @Override
+  public int getLength(CharSequence text, int start, int end) {
+    int length = 0;
+    int previous = -1;
+    int regionalIndicators = 0;
+    int i = start;
+    while (i < end) {
+      int codePoint = codePointAt(text, i, end);
+      int current = getCategory(codePoint);
+      if (previous == -1 || isBreak(previous, current, regionalIndicators)) length++;
+      regionalIndicators = current == REGIONAL_INDICATOR ? regionalIndicators + 1 : 0;
+      previous = current;
+      i += Character.charCount(codePoint);
+    }
+    return length;
+  }
+
+  @Override
+  public int getBoundaryBefore(CharSequence text, int offset) {
+    while (!isBoundary(text, offset)) {
+      offset = previousOffset(text, offset);
+    }
+    return offset;
+  }
+
+  @Override
+  public int getBoundaryAfter(CharSequence text, int offset) {
+    while (!isBoundary(text, offset)) {
+      offset += Character.charCount(codePointAt(text, offset, text.length()));
+    }
+    return offset;
+  }
+
+  private static boolean isBoundary(CharSequence text, int offset) {
+    if (offset <= 0 || offset >= text.length()) return true;
+    if (CodePointWeightLengthChecker.isInsideSurrogatePair(text, offset)) return false;
+
+    int before = previousOffset(text, offset);
+    int previous = getCategory(codePointAt(text, before, offset));
+    int current = getCategory(codePointAt(text, offset, text.length()));
+    int regionalIndicators = 0;
+    if (previous == REGIONAL_INDICATOR && current == REGIONAL_INDICATOR) {
+      int position = offset;
+      while (position > 0) {
+        int previousPosition = previousOffset(text, position);
+        if (getCategory(codePointAt(text, previousPosition, position)) != REGIONAL_INDICATOR) break;
+        regionalIndicators++;
+        position = previousPosition;
+      }
+    }
+    return isBreak(previous, current, regionalIndicators);
+  }
+
+  /**
+   * @param regionalIndicators Count of consecutive regional indicators ending with {@code previous}.
+   */
+  private static boolean isBreak(int previous, int current, int regionalIndicators) {
+    if (previous == CR && current == LF) return false; // GB3
+    if (previous == CR || previous == LF || previous == CONTROL) return true; // GB4
+    if (current == CR || current == LF || current == CONTROL) return true; // GB5
+    if (previous == HANGUL_L && (current == HANGUL_L || current == HANGUL_V || current == HANGUL_LV || current == HANGUL_LVT)) return false; // GB6
+    if ((previous == HANGUL_LV || previous == HANGUL_V) && (current == HANGUL_V || current == HANGUL_T)) return false; // GB7
+    if ((previous == HANGUL_LVT || previous == HANGUL_T) && current == HANGUL_T) return false; // GB8
+    if (current == EXTEND || current == ZWJ || current == SPACING_MARK) return false; // GB9, GB9a
+    if (previous == ZWJ && current == PICTOGRAPHIC) return false; // GB11
+    if (previous == REGIONAL_INDICATOR && current == REGIONAL_INDICATOR) return regionalIndicators % 2 == 0; // GB12, GB13
+    return true; // GB999
+  }
+
+  private static int getCategory(int codePoint) {
+    if (codePoint == '\r') return CR;
+    if (codePoint == '\n') return LF;
+    if (codePoint == 0x200D) return ZWJ;
+    if (codePoint >= 0x1F1E6 && codePoint <= 0x1F1FF) return REGIONAL_INDICATOR;
+    if (codePoint >= 0x1F3FB && codePoint <= 0x1F3FF) return EXTEND; // Emoji modifiers
+    if (codePoint >= 0x1100 && codePoint <= 0x115F || codePoint >= 0xA960 && codePoint <= 0xA97C) return HANGUL_L;
+    if (codePoint >= 0x1160 && codePoint <= 0x11A7 || codePoint >= 0xD7B0 && codePoint <= 0xD7C6) return HANGUL_V;
+    if (codePoint >= 0x11A8 && codePoint <= 0x11FF || codePoint >= 0xD7CB && codePoint <= 0xD7FB) return HANGUL_T;
+    if (codePoint >= 0xAC00 && codePoint <= 0xD7A3) return (codePoint - 0xAC00) % 28 == 0 ? HANGUL_LV : HANGUL_LVT;
+    switch (Character.getType(codePoint)) {
+      case Character.NON_SPACING_MARK:
+      case Character.ENCLOSING_MARK:
+        return EXTEND;
+      case Character.COMBINING_SPACING_MARK:
+        return SPACING_MARK;
+      case Character.FORMAT:
+        return codePoint == 0x200C || codePoint >= 0xE0020 && codePoint <= 0xE007F ? EXTEND : CONTROL;
+      case Character.CONTROL:
+      case Character.LINE_SEPARATOR:
+      case Character.PARAGRAPH_SEPARATOR:
+        return CONTROL;
+      case Character.OTHER_SYMBOL:
+        return PICTOGRAPHIC;
+      default:
+        return OTHER;
+    }
+  }
+
+  private static int codePointAt(CharSequence text, int index, int limit) {
+    char c = text.charAt(index);
+    if (Character.isHighSurrogate(c) && index + 1 < limit && Character.isLowSurrogate(text.charAt(index + 1))) {
+      return Character.toCodePoint(c, text.charAt(index + 1));
+    }
+    return c;
+  }
+
+  private static int previousOffset(CharSequence text, int offset) {
+    return CodePointWeightLengthChecker.isInsideSurrogatePair(text, offset - 1) ? offset - 2 : offset - 1;
+  }
+
+}
@@ -0,0 +1,39 @@
+package com.rengwuxian.materialedittext.validation;
+
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Validator whose result also depends on the text of other fields (e.g. "confirm password equals password").
+ * <p/>
+ * The fields it reads are declared up front, so that a {@link com.rengwuxian.materialedittext.METForm} only
+ * re-evaluates it when one of them (or the validated field itself) changes.
+ */
+public abstract class METCrossFieldValidator extends METValidator {
+
+  private final TextView[] dependencies;
+
+  public METCrossFieldValidator(@NonNull String errorMessage, @NonNull TextView... dependencies) {
+    super(errorMessage);
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * @return The fields, other than the validated one, this validator reads.
+   */
+  @NonNull
+  public TextView[] getDependencies() {
+    return dependencies;
+  }
+
+  /**
+   * @return The current text of the dependency at {@code index}, never null.
+   */
+  @NonNull
+  protected CharSequence getDependencyText(int index) {
+    CharSequence text = dependencies[index].getText();
+    return text == null ? "" : text;
+  }
+
+}
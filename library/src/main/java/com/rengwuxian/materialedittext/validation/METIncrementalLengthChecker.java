@@ -0,0 +1,36 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Length checker that can measure a range of the text, so the field only has to re-measure the edited region.
+ * <p/>
+ * The length of a text must be the sum of the lengths of its ranges, as long as the ranges are split at offsets
+ * returned by {@link #getBoundaryBefore(CharSequence, int)} and {@link #getBoundaryAfter(CharSequence, int)}.
+ */
+public abstract class METIncrementalLengthChecker extends METLengthChecker {
+
+  /**
+   * @return The length of {@code text} between {@code start} (inclusive) and {@code end} (exclusive).
+   */
+  public abstract int getLength(CharSequence text, int start, int end);
+
+  @Override
+  public int getLength(CharSequence text) {
+    return getLength(text, 0, text.length());
+  }
+
+  /**
+   * @return The closest offset at or before {@code offset} where a counted unit starts. Override if a unit can span
+   * several chars (e.g. surrogate pairs).
+   */
+  public int getBoundaryBefore(CharSequence text, int offset) {
+    return offset;
+  }
+
+  /**
+   * @return The closest offset at or after {@code offset} where a counted unit starts, or the text's length.
+   */
+  public int getBoundaryAfter(CharSequence text, int offset) {
+    return offset;
+  }
+
+}
@@ -0,0 +1,18 @@
+package com.rengwuxian.materialedittext.validation;
+
+/**
+ * Counts the bytes of the text encoded in UTF-8, for fields stored in byte-limited columns. Gives the same result as
+ * {@code text.toString().getBytes(StandardCharsets.UTF_8).length} without encoding the text.
+ */
+@SuppressWarnings({"unused"})
+public class Utf8ByteLengthChecker extends CodePointWeightLengthChecker {
+
+  @Override
+  int getWeight(int codePoint) {
+    if (codePoint < 0x80) return 1;
+    if (codePoint < 0x800) return 2;
+    if (codePoint < 0x10000) return Character.isSurrogate((char) codePoint) ? 1 : 3; // Unpaired surrogates become '?'
+    return 4;
+  }
+
+}